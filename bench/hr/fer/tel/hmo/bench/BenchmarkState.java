@@ -0,0 +1,86 @@
+package hr.fer.tel.hmo.bench;
+
+import hr.fer.tel.hmo.instance.Instance;
+import hr.fer.tel.hmo.network.Topology;
+import hr.fer.tel.hmo.solution.Evaluator;
+import hr.fer.tel.hmo.solution.Solution;
+import hr.fer.tel.hmo.solution.placement.Placement;
+import hr.fer.tel.hmo.solution.placement.Placer;
+import hr.fer.tel.hmo.solution.placement.PlacerFactory;
+import hr.fer.tel.hmo.solution.routing.Route;
+import hr.fer.tel.hmo.solution.routing.Router;
+import hr.fer.tel.hmo.solution.routing.RouterFactory;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
+import hr.fer.tel.hmo.util.Rng;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Loaded instance with one valid solution, created once per trial for every benchmark thread.
+ * <p>
+ * Random numbers are seeded before the solution is built and before every iteration,
+ * so every run measures the same work. Placer and router are kept for the whole trial,
+ * so their state (next greedy placement, cached routes) carries over between iterations.
+ */
+@State(Scope.Thread)
+public class BenchmarkState {
+
+	/**
+	 * Seed used for everything random in benchmarks
+	 */
+	static final long SEED = 42L;
+
+	/**
+	 * Directory with instance files, can be changed with -Dhmo.instances=DIR
+	 */
+	private static final String INSTANCES = System.getProperty("hmo.instances", ".");
+
+	@Param({"instance_small.txt", "instance.txt", "instance_big.txt"})
+	public String instance;
+
+	Topology topology;
+	Evaluator evaluator;
+	Placer placer;
+	Router router;
+
+	/**
+	 * Valid solution found with greedy placer and default router
+	 */
+	Solution solution;
+
+	@Setup(Level.Trial)
+	public void load() throws IOException {
+		try (InputStream stream = Files.newInputStream(Paths.get(INSTANCES, instance))) {
+			topology = Instance.readFromStream(stream).getTopology();
+		}
+		evaluator = new Evaluator(topology);
+
+		Rng.seed(SEED);
+		placer = PlacerFactory.GREEDY.create(topology, p -> evaluator.isValid(p) && evaluator.isLatencyFeasible(p));
+		router = RouterFactory.DEFAULT.create(topology);
+
+		IntIntObjMatrix<Route> routes;
+		Placement p;
+		do {
+			p = placer.next();
+			if (p == null) {
+				throw new IllegalStateException("Placer didn't find a valid placement for " + instance);
+			}
+			routes = router.findRouting(p);
+		} while (routes == null);
+		solution = new Solution(p, routes);
+	}
+
+	@Setup(Level.Iteration)
+	public void reseed() {
+		Rng.seed(SEED);
+	}
+}
@@ -0,0 +1,23 @@
+package hr.fer.tel.hmo.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks with gc profiler, so allocation rate is reported next to throughput.
+ * Benchmarks can be filtered with a regular expression given as first argument.
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(args.length > 0 ? args[0] : Benchmarks.class.getPackage().getName() + ".*")
+				.addProfiler(GCProfiler.class)
+				.jvmArgsAppend("-Dhmo.instances=" + System.getProperty("hmo.instances", "."))
+				.build();
+		new Runner(options).run();
+	}
+}
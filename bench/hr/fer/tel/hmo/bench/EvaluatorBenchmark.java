@@ -0,0 +1,42 @@
+package hr.fer.tel.hmo.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of one fixed solution
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+	@Benchmark
+	public double fitness(BenchmarkState s) {
+		return s.evaluator.fitness(s.solution);
+	}
+
+	@Benchmark
+	public boolean isValid(BenchmarkState s) {
+		return s.evaluator.isValid(s.solution.getPlacement());
+	}
+
+	@Benchmark
+	public boolean isLatencyFeasible(BenchmarkState s) {
+		return s.evaluator.isLatencyFeasible(s.solution.getPlacement());
+	}
+
+	@Benchmark
+	public void assertSolution(BenchmarkState s) {
+		s.evaluator.assertSolution(s.solution);
+	}
+}
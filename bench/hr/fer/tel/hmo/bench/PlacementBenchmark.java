@@ -0,0 +1,33 @@
+package hr.fer.tel.hmo.bench;
+
+import hr.fer.tel.hmo.solution.placement.Placement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating placements
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark {
+
+	@Benchmark
+	public Placement greedyNext(BenchmarkState s) {
+		return s.placer.next();
+	}
+
+	@Benchmark
+	public Placement neighbor(BenchmarkState s) {
+		return s.solution.getPlacement().neighbor(6);
+	}
+}
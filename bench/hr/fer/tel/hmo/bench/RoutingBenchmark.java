@@ -0,0 +1,79 @@
+package hr.fer.tel.hmo.bench;
+
+import hr.fer.tel.hmo.solution.placement.Placement;
+import hr.fer.tel.hmo.solution.routing.Route;
+import hr.fer.tel.hmo.solution.routing.Router;
+import hr.fer.tel.hmo.solution.routing.RouterFactory;
+import hr.fer.tel.hmo.tabu.impl.RoutingProblem;
+import hr.fer.tel.hmo.tabu.impl.RoutingSolution;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full routing of a fixed placement and one tabu neighborhood
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+
+	@State(Scope.Thread)
+	public static class Routers {
+
+		@Param({"greedy", "shortest-path", "ant-colony"})
+		public String router;
+
+		Router instance;
+
+		@Setup(Level.Trial)
+		public void create(BenchmarkState s) {
+			// same names as -Dhmo.router
+			instance = RouterFactory.byName(router).create(s.topology);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Problem {
+
+		RoutingProblem problem;
+		RoutingSolution current;
+
+		@Setup(Level.Iteration)
+		public void create(BenchmarkState s) {
+			problem = new RoutingProblem(s.evaluator, s.router, s.solution);
+			current = problem.initial();
+		}
+	}
+
+	@Benchmark
+	public IntIntObjMatrix<Route> findRouting(BenchmarkState s, Routers r) {
+		return r.instance.findRouting(s.solution.getPlacement());
+	}
+
+	@Benchmark
+	public IntIntObjMatrix<Route> findRoutingFromPrevious(BenchmarkState s, Routers r) {
+		Placement p = s.solution.getPlacement().neighbor(6);
+		return r.instance.findRouting(p, s.solution.getRoutes());
+	}
+
+	@Benchmark
+	public Collection<RoutingSolution> neighborhood(Problem p) {
+		return p.problem.neighborhood(p.current);
+	}
+}
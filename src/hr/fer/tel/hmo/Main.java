@@ -1,48 +1,305 @@
 package hr.fer.tel.hmo;
 
 import hr.fer.tel.hmo.instance.Instance;
+import hr.fer.tel.hmo.instance.TopologySnapshot;
 import hr.fer.tel.hmo.network.Topology;
 import hr.fer.tel.hmo.solution.Evaluator;
 import hr.fer.tel.hmo.solution.Solution;
 import hr.fer.tel.hmo.solution.placement.Placement;
 import hr.fer.tel.hmo.solution.placement.Placer;
+import hr.fer.tel.hmo.solution.placement.PlacerFactory;
 import hr.fer.tel.hmo.solution.routing.Route;
 import hr.fer.tel.hmo.solution.routing.Router;
+import hr.fer.tel.hmo.solution.routing.RouterFactory;
 import hr.fer.tel.hmo.tabu.alg.Tabu;
-import hr.fer.tel.hmo.tabu.alg.TabuProblem;
+import hr.fer.tel.hmo.tabu.impl.ElitePool;
 import hr.fer.tel.hmo.tabu.impl.RoutingProblem;
 import hr.fer.tel.hmo.tabu.impl.RoutingSolution;
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.Deadline;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
+import hr.fer.tel.hmo.util.Rng;
+import hr.fer.tel.hmo.util.Telemetry;
+import hr.fer.tel.hmo.util.Util;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  */
 public class Main {
 
 	private static final int TABU_RUNS = 100;
-	private static final Object RS_LOCK = new Object();
 
-	private static RoutingSolution bestRS = null;
+	/**
+	 * How long workers can take to finish after budget is spent
+	 */
+	private static final long GRACE_MS = 200;
+
+	/**
+	 * Number of solver workers, can be changed with -Dhmo.threads=N
+	 */
+	private static final int THREADS = Integer.getInteger(
+			"hmo.threads", Runtime.getRuntime().availableProcessors()
+	);
+
+	/**
+	 * Files with this suffix are loaded as binary topology snapshots
+	 */
+	private static final String SNAPSHOT_SUFFIX = ".snap";
+
+	/**
+	 * If set with -Dhmo.snapshot=FILE, topology read from text is also written to a snapshot
+	 */
+	private static final String SNAPSHOT = System.getProperty("hmo.snapshot");
+
+	/**
+	 * If set with -Dhmo.budget=DURATION (e.g. 90s, 5m, 1h), tabu runs are started until
+	 * the budget is spent instead of doing {@link #TABU_RUNS} runs
+	 */
+	private static final String BUDGET = System.getProperty("hmo.budget");
+
+	/**
+	 * Times at which best solution is written to disk, e.g. -Dhmo.checkpoints=1m,5m,1h
+	 */
+	private static final String CHECKPOINTS = System.getProperty("hmo.checkpoints", "");
+
+	/**
+	 * Directory for checkpoint files, res-TIME.txt is written for every checkpoint
+	 */
+	private static final String OUTPUT = System.getProperty("hmo.output", ".");
+
+	/**
+	 * How often telemetry file is rewritten while search runs, if -Dhmo.telemetry=FILE is set
+	 */
+	private static final String TELEMETRY_PERIOD = System.getProperty("hmo.telemetry.period", "10s");
+
+	/**
+	 * Router used by all workers, e.g. -Dhmo.router=parallel-ant-colony, see {@link RouterFactory#byName(String)}
+	 */
+	private static final String ROUTER = System.getProperty("hmo.router");
+
+	/**
+	 * If set with -Dhmo.parallel.neighbors=true, neighbors of every tabu iteration are created
+	 * in parallel on the common fork join pool (-Dhmo.neighbors=N of them)
+	 */
+	private static final boolean PARALLEL_NEIGHBORS = Boolean.getBoolean("hmo.parallel.neighbors");
+
+	/**
+	 * If set with -Dhmo.islands=true, workers are islands which continue from their best solution,
+	 * exchange best solutions through an elite pool during search and restart from an elite solution when they stagnate
+	 */
+	private static final boolean ISLANDS = Boolean.getBoolean("hmo.islands");
+
+	/**
+	 * Number of solutions in elite pool of island mode
+	 */
+	private static final int ELITE = Integer.getInteger("hmo.islands.elite", 8);
+
+	/**
+	 * Number of runs without improvement after which an island restarts from an elite solution
+	 */
+	private static final int STAGNATION = Integer.getInteger("hmo.islands.stagnation", 1);
+
+	/**
+	 * Number of tabu iterations between exchanges of an island with elite pool
+	 */
+	private static final int MIGRATION = Integer.getInteger("hmo.islands.migration", 50);
+
+	/**
+	 * Best solution found by any of the workers
+	 */
+	private static final AtomicReference<Incumbent> BEST = new AtomicReference<>();
 
 	public static void main(String[] args) {
 
-		args = new String[]{"./instance_big.txt"};
+		if (args.length == 0) {
+			args = new String[]{"./instance_big.txt"};
+		}
 
-		InputStream stream;
-		if (args.length > 0) {
+		Topology t;
+		if (args[0].endsWith(SNAPSHOT_SUFFIX)) {
 			try {
-				Path p = Paths.get(args[0]);
-				stream = Files.newInputStream(p);
-			} catch (IOException ex) {
-				System.err.println("File not found, reading from stdin");
-				stream = System.in;
+				t = TopologySnapshot.read(Paths.get(args[0]));
+			} catch (IOException | IllegalArgumentException ex) {
+				System.err.println("Error while reading snapshot");
+				ex.printStackTrace();
+				return;
 			}
 		} else {
+			t = readInstance(args[0]);
+			if (t == null) {
+				return;
+			}
+		}
+		System.err.println("Network configured...");
+
+		// Evaluator is stateless, so it can be shared between workers
+		Evaluator evaluator = new Evaluator(t);
+		System.err.println("Created evaluator...");
+
+		List<String> checkpoints = new ArrayList<>();
+		long budget = 0L;
+		long period = 0L;
+		RouterFactory routers;
+		try {
+			routers = ROUTER == null ? RouterFactory.DEFAULT : RouterFactory.byName(ROUTER);
+			for (String c : CHECKPOINTS.split(",")) {
+				if (!c.trim().isEmpty()) {
+					budget = Math.max(budget, Deadline.parse(c));
+					checkpoints.add(c.trim());
+				}
+			}
+			if (BUDGET != null) {
+				budget = Deadline.parse(BUDGET);
+				// search stops at the budget, a later checkpoint would only repeat the last result
+				for (Iterator<String> it = checkpoints.iterator(); it.hasNext(); ) {
+					String c = it.next();
+					if (Deadline.parse(c) > budget) {
+						System.err.printf("Checkpoint %s is after budget %s, skipping it%n", c, BUDGET);
+						it.remove();
+					}
+				}
+			}
+			if (Telemetry.ENABLED) {
+				period = Deadline.parse(TELEMETRY_PERIOD);
+				if (period <= 0) {
+					throw new IllegalArgumentException("Telemetry period has to be positive: " + TELEMETRY_PERIOD);
+				}
+			}
+		} catch (IllegalArgumentException ex) {
+			System.err.println(ex.getMessage());
+			return;
+		}
+		boolean anytime = budget > 0;
+		Deadline deadline = anytime ? Deadline.after(budget) : Deadline.NONE;
+
+		int threads = Math.max(1, anytime ? THREADS : Math.min(THREADS, TABU_RUNS));
+		System.err.printf("Starting tabu runs on %d threads (seed %d)%s...%n",
+				threads, Rng.getSeed(), ISLANDS ? " as islands" : "");
+		ElitePool elite = ISLANDS ? new ElitePool(ELITE) : null;
+
+		AtomicInteger runs = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread th = new Thread(r);
+			th.setDaemon(true);
+			return th;
+		});
+		for (int i = 0; i < threads; i++) {
+			// every worker has its own placer and router
+			pool.execute(new Worker(t, evaluator, routers, PlacerFactory.DEFAULT, runs, deadline, elite));
+		}
+
+		// checkpoints before the budget are written while search runs, one at the budget when it is done
+		ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread th = new Thread(r);
+			th.setDaemon(true);
+			return th;
+		});
+		if (Telemetry.ENABLED) {
+			checkpointer.scheduleAtFixedRate(Main::writeTelemetry, period, period, TimeUnit.NANOSECONDS);
+		}
+		List<String> late = new ArrayList<>();
+		for (String c : checkpoints) {
+			long at = Deadline.parse(c);
+			if (at < budget) {
+				checkpointer.schedule(() -> checkpoint(c), at, TimeUnit.NANOSECONDS);
+			} else {
+				late.add(c);
+			}
+		}
+
+		pool.shutdown();
+		try {
+			if (!pool.awaitTermination(anytime ? deadline.remaining() : Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+				// give iterations in progress a moment, but return incumbent even if they don't finish
+				pool.awaitTermination(GRACE_MS, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		pool.shutdownNow();
+		checkpointer.shutdownNow();
+		late.forEach(Main::checkpoint);
+		if (Telemetry.ENABLED) {
+			writeTelemetry();
+			System.err.printf("Telemetry: %.0f neighbors/s, %d routing failures, %d of %d solutions rejected%n",
+					Telemetry.neighborsPerSecond(), Telemetry.Counter.ROUTING_FAILURES.get(),
+					Telemetry.Counter.ASSERT_REJECTED.get(), Telemetry.Counter.ASSERTS.get());
+		}
+
+		Incumbent best = BEST.get();
+		if (best == null) {
+			System.err.println("No valid solution found");
+			return;
+		}
+		RoutingSolution bestRS = best.solution;
+
+		System.out.println(bestRS.getSolution());
+		System.out.println("Best fitness = " + -bestRS.getFitness());
+	}
+
+	/**
+	 * Write best solution so far to res-NAME.txt in output directory
+	 *
+	 * @param name checkpoint name
+	 */
+	private static void checkpoint(String name) {
+		Incumbent best = BEST.get();
+		if (best == null) {
+			System.err.printf("Checkpoint %s: no valid solution yet%n", name);
+			return;
+		}
+		RoutingSolution rs = best.solution;
+		Path file = Paths.get(OUTPUT, "res-" + name + ".txt");
+		Path tmp = Paths.get(OUTPUT, "res-" + name + ".txt.tmp");
+		try {
+			Files.write(tmp, rs.getSolution().toString().getBytes());
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			System.err.printf("Checkpoint %s: %.2f written to %s%n", name, -rs.getFitness(), file);
+		} catch (IOException ex) {
+			System.err.println("Error while writing checkpoint " + file);
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Write telemetry file, errors are only reported
+	 */
+	private static void writeTelemetry() {
+		try {
+			Telemetry.write();
+		} catch (IOException ex) {
+			System.err.println("Error while writing telemetry to " + Telemetry.FILE);
+		}
+	}
+
+	/**
+	 * Read instance from text file (or stdin if file can't be opened)
+	 * and write its snapshot if -Dhmo.snapshot is set
+	 *
+	 * @param file instance file
+	 * @return topology or null on error
+	 */
+	private static Topology readInstance(String file) {
+		InputStream stream;
+		try {
+			Path p = Paths.get(file);
+			stream = Files.newInputStream(p);
+		} catch (IOException ex) {
+			System.err.println("File not found, reading from stdin");
 			stream = System.in;
 		}
 
@@ -52,89 +309,246 @@ public class Main {
 		} catch (IOException ex) {
 			System.err.println("Error while reading from stream");
 			ex.printStackTrace();
-			return;
+			return null;
 		} catch (IllegalArgumentException ex) {
 			ex.printStackTrace();
-			return;
+			return null;
 		}
-		System.err.println("Network configured...");
 
 		Topology t = instance.getTopology();
+		if (SNAPSHOT != null) {
+			try {
+				TopologySnapshot.write(t, Paths.get(SNAPSHOT));
+				System.err.println("Snapshot written to " + SNAPSHOT);
+			} catch (IOException ex) {
+				System.err.println("Error while writing snapshot");
+				ex.printStackTrace();
+			}
+		}
+		return t;
+	}
 
-		// Create main solvers
-		Evaluator evaluator = new Evaluator(t);
-		Placer placer = Placer.get(t, evaluator::isValid);
-		Router router = Router.get(t);
-		System.err.println("Created evaluator, placer and router...");
+	/**
+	 * Offer a solution to the global best holder
+	 *
+	 * @param rs solution
+	 * @param id id of run that found it
+	 */
+	private static void offer(RoutingSolution rs, int id) {
+		Incumbent next = new Incumbent(rs, id);
+		Incumbent prev;
+		do {
+			prev = BEST.get();
+			if (prev != null && !next.isBetterThan(prev)) {
+				return;
+			}
+		} while (!BEST.compareAndSet(prev, next));
+		Telemetry.best(-rs.getFitness());
+		System.err.printf("Found new best solution (%.2f)!%n", -rs.getFitness());
+	}
+
+	/**
+	 * Takes tabu runs until all of them are done or deadline passes.
+	 * As an island it starts every run from its best solution, or from an elite one when it stagnates.
+	 */
+	private static class Worker implements Runnable {
+
+		private final Evaluator evaluator;
+		private final RouterFactory routers;
+		private final Placer placer;
+		private final AtomicInteger runs;
+		private final Deadline deadline;
 
-		System.err.println("Starting tabu runs...");
+		/**
+		 * Pool shared by islands, null if runs are independent
+		 */
+		private final ElitePool elite;
 
-		for (int i = 0; i < TABU_RUNS; i++) {
-			// make parallel
-			new Solver(evaluator, router, placer, i).run();
+		Worker(Topology t, Evaluator evaluator, RouterFactory routers, PlacerFactory placers,
+		       AtomicInteger runs, Deadline deadline, ElitePool elite) {
+			this.evaluator = evaluator;
+			this.routers = routers;
+			this.placer = placers.create(t, p -> evaluator.isValid(p) && evaluator.isLatencyFeasible(p));
+			this.runs = runs;
+			this.deadline = deadline;
+			this.elite = elite;
 		}
 
-		System.out.println(bestRS.getSolution());
-		System.out.println("Best fitness = " + -bestRS.getFitness());
+		@Override
+		public void run() {
+			// best solution of this island and number of runs that didn't improve it
+			RoutingSolution own = null;
+			int stale = 0;
+
+			boolean anytime = deadline != Deadline.NONE;
+			for (int id = runs.getAndIncrement(); anytime ? !deadline.isExpired() : id < TABU_RUNS;
+			     id = runs.getAndIncrement()) {
+				// every run has its own random stream and a fresh router (routers cache routes),
+				// so its result doesn't depend on the thread that takes it
+				Rng.bind(Rng.stream(id));
+
+				if (elite != null && own != null && stale >= STAGNATION) {
+					// half of restarts are new solutions, so islands don't all end up around the same elites
+					own = Util.randomDouble() < 0.5 ? elite.pick() : null;
+					stale = 0;
+				}
+
+				RoutingSolution rs;
+				try {
+					Solution start = own == null ? null : own.getSolution();
+					rs = new Solver(evaluator, routers, placer, id, deadline, start, elite).solve();
+				} catch (RuntimeException ex) {
+					System.err.printf("\tSolver[%d] failed: %s%n", id, ex);
+					continue;
+				}
+				if (rs == null) {
+					continue;
+				}
+				offer(rs, id);
+
+				if (elite != null) {
+					elite.offer(rs);
+					if (own == null || rs.isBetterThan(own)) {
+						own = rs;
+						stale = 0;
+					} else {
+						stale++;
+					}
+				}
+			}
+		}
 	}
 
 	/**
 	 * Solves one tabu problem
 	 */
-	private static class Solver implements Runnable {
+	private static class Solver {
 
 		private final Evaluator evaluator;
+
+		/**
+		 * Creates routers of parallel neighborhoods
+		 */
+		private final RouterFactory routers;
+
+		/**
+		 * Router of this run, it isn't shared with other runs
+		 */
 		private final Router router;
 		private final Placer placer;
 		private final int id;
+		private final Deadline deadline;
+
+		/**
+		 * Solution search starts from, new one is created if null
+		 */
+		private final Solution start;
 
-		Solver(Evaluator evaluator, Router router, Placer placer, int id) {
+		/**
+		 * Pool search exchanges solutions with, null if it isn't an island
+		 */
+		private final ElitePool elite;
+
+		Solver(Evaluator evaluator, RouterFactory routers, Placer placer, int id, Deadline deadline, Solution start,
+		       ElitePool elite) {
 			this.evaluator = evaluator;
-			this.router = router;
+			this.routers = routers;
+			this.router = routers.create(evaluator.getTopology());
 			this.placer = placer;
 			this.id = id;
+			this.deadline = deadline;
+			this.start = start;
+			this.elite = elite;
 		}
 
-		@Override
-		public void run() {
+		/**
+		 * @return best solution found, null if search couldn't start or its solution is invalid
+		 */
+		RoutingSolution solve() {
+			Solution s = start != null ? start : initial();
+			if (s == null || (start == null && !check(s))) {
+				return null;
+			}
+
+			RoutingProblem tp = PARALLEL_NEIGHBORS
+					? new RoutingProblem(evaluator, routers, s, deadline, RoutingProblem.NEIGHBORS)
+					: new RoutingProblem(evaluator, router, s, deadline);
+			if (elite != null) {
+				tp.setElite(elite, MIGRATION);
+			}
+			RoutingSolution rs = Tabu.search(tp);
+			if (rs == null || !check(rs.getSolution())) {
+				return null;
+			}
+			// search adds up power differences, so rounding errors build up, reported fitness is calculated again
+			rs = new RoutingSolution(rs.getSolution(), evaluator.fitness(rs.getSolution()));
 
-			System.err.printf("\tStarting solver[%d]\t", id);
+			System.err.printf("\tSolver[%d] -> %.2f%n", id, -rs.getFitness());
+			return rs;
+		}
 
+		/**
+		 * @return new solution from placer and router, null if deadline passed or placer didn't find a valid placement
+		 */
+		private Solution initial() {
 			Placement p;
-			Matrix<Integer, Integer, Route> rts;
+			IntIntObjMatrix<Route> rts;
 
+			long start = Telemetry.start();
 			do {
+				if (deadline.isExpired()) {
+					return null;
+				}
 				p = placer.next();
+				if (p == null) {
+					System.err.printf("\tSolver[%d]: placer didn't find a valid placement%n", id);
+					return null;
+				}
 				rts = router.findRouting(p);
+				if (rts == null) {
+					Telemetry.count(Telemetry.Counter.ROUTING_FAILURES);
+				}
 			} while (rts == null);
-			Solution s = new Solution(p, rts);
+			Telemetry.stop(Telemetry.Phase.INITIAL, start);
+
+			return new Solution(p, rts);
+		}
 
+		/**
+		 * @param s solution
+		 * @return true if evaluator accepts solution
+		 */
+		private boolean check(Solution s) {
+			long start = Telemetry.start();
+			Telemetry.count(Telemetry.Counter.ASSERTS);
 			try {
 				evaluator.assertSolution(s);
+				return true;
 			} catch (RuntimeException ex) {
-				return;
+				Telemetry.count(Telemetry.Counter.ASSERT_REJECTED);
+				return false;
+			} finally {
+				Telemetry.stop(Telemetry.Phase.ASSERT, start);
 			}
+		}
+	}
 
-			TabuProblem<RoutingSolution> tp = new RoutingProblem(evaluator, router, s);
-			RoutingSolution rs = Tabu.search(tp);
-			if (rs != null) {
-
-				try {
-					evaluator.assertSolution(rs.getSolution());
-				} catch (RuntimeException ex) {
-					return;
-				}
+	/**
+	 * Best solution and run that found it, equal solutions are ordered by run so result doesn't depend on timing
+	 */
+	private static class Incumbent {
 
-				System.err.printf("-> %.2f%n", -rs.getFitness());
+		private final RoutingSolution solution;
+		private final int id;
 
-				synchronized (RS_LOCK) {
-					if (bestRS == null || rs.isBetterThan(bestRS)) {
-						bestRS = rs;
-						System.err.printf("Found new best solution (%.2f)!%n", -bestRS.getFitness());
-					}
-				}
+		Incumbent(RoutingSolution solution, int id) {
+			this.solution = solution;
+			this.id = id;
+		}
 
-			}
+		boolean isBetterThan(Incumbent other) {
+			return solution.isBetterThan(other.solution)
+					|| (!other.solution.isBetterThan(solution) && id < other.id);
 		}
 	}
 }
@@ -1,14 +1,14 @@
 package hr.fer.tel.hmo.instance;
 
 import hr.fer.tel.hmo.network.*;
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.IntIntDoubleMatrix;
 import hr.fer.tel.hmo.util.Util;
 import hr.fer.tel.hmo.vnf.Component;
 import hr.fer.tel.hmo.vnf.ServiceChain;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -54,56 +54,46 @@ public class Instance {
 	 * Maximum amount of power
 	 * PMax[serverIndex]
 	 */
-	private List<Double> PMax;
+	private double[] PMax;
 
 	/**
 	 * Minimum amount of power consumed by each server
 	 * PMin[serverIndex]
 	 */
-	private List<Double> PMin;
+	private double[] PMin;
 
 	/**
 	 * Requirements for each resource given for each component
 	 * requirements[resourceIndex][componentIndex]
 	 */
-	private List<List<Double>> requirements;
+	private double[][] requirements;
 
 	/**
 	 * Represents in what order is each resource available at each server.
 	 * resourceAvailability[resourceIndex][serverIndex]
 	 */
-	private List<List<Double>> resourceAvailability;
+	private double[][] resourceAvailability;
 
 	/**
 	 * Determines where is each server places (to which node is it connected to)
 	 * serverPlacement[serverIndex][nodeIndex]
 	 */
-	private List<List<Double>> serverPlacement;
+	private double[][] serverPlacement;
 
 	/**
 	 * Defines service chains.
 	 */
-	private List<List<Double>> serviceChain;
+	private double[][] serviceChain;
 
 	/**
 	 * Power consumption of each node.
 	 */
-	private List<Double> PNode;
-
-	/**
-	 * List of edges between nodes with their properties
-	 */
-	private List<List<Double>> edges;
-
-	/**
-	 * List of demanded bandwidths between two components
-	 */
-	private List<List<Double>> vnfDemands;
+	private double[] PNode;
 
 	/**
 	 * Maximal permitted latency for each service chain
 	 */
-	private List<Double> maximalLatency;
+	private double[] maximalLatency;
 
 	/**
 	 * Create a new instance
@@ -120,37 +110,47 @@ public class Instance {
 	 * @return newly created (read) instance
 	 */
 	public static Instance readFromStream(InputStream stream) throws IOException {
-		InstanceReader reader = new InstanceReader(stream);
-
 		Instance instance = new Instance();
+		Network n;
+		IntIntDoubleMatrix ds;
+
+		try (InstanceReader reader = new InstanceReader(stream)) {
+			instance.numberOfServers = (int) reader.singleValue();
+			instance.numberOfVns = (int) reader.singleValue();
+			instance.numberOfResources = (int) reader.singleValue();
+			instance.numberOfNodes = (int) reader.singleValue();
+			instance.numberOfServiceChains = (int) reader.singleValue();
+
+			instance.PMax = reader.array();
+			instance.PMin = reader.array();
+			instance.requirements = reader.matrix();
+			instance.resourceAvailability = reader.matrix();
+			instance.serverPlacement = reader.matrix();
+			instance.serviceChain = reader.matrix();
+			instance.PNode = reader.array();
+
+			if (!instance.isValid()) {
+				throw new IllegalArgumentException("Instance configuration is not valid");
+			}
+
+			// edges and demands can be big, they are streamed straight into network and demands
+			n = instance.configureNodes();
+			reader.rows(5, (row, edge) -> instance.configureLink(n, edge));
+			n.freeze();
+
+			ds = new IntIntDoubleMatrix();
+			reader.rows(3, (row, demand) -> instance.configureDemand(ds, demand));
+
+			instance.maximalLatency = reader.array();
+		}
 
-		instance.numberOfServers = reader.singleValue().intValue();
-		instance.numberOfVns = reader.singleValue().intValue();
-		instance.numberOfResources = reader.singleValue().intValue();
-		instance.numberOfNodes = reader.singleValue().intValue();
-		instance.numberOfServiceChains = reader.singleValue().intValue();
-
-		instance.PMax = reader.array();
-		instance.PMin = reader.array();
-		instance.requirements = reader.matrix();
-		instance.resourceAvailability = reader.matrix();
-		instance.serverPlacement = reader.matrix();
-		instance.serviceChain = reader.matrix();
-		instance.PNode = reader.array();
-		instance.edges = reader.matrix();
-		instance.vnfDemands = reader.matrix();
-		instance.maximalLatency = reader.array();
-
-		reader.close();
-
-		if (!instance.isValid()) {
+		if (!Util.checkArray(instance.maximalLatency, instance.numberOfServiceChains)) {
 			throw new IllegalArgumentException("Instance configuration is not valid");
 		}
 
-		Network n = instance.configureNetwork();
+		instance.configureServers(n);
 		Component[] cs = instance.configureComponents();
 		List<ServiceChain> scs = instance.configureServiceChains(cs);
-		Matrix<Integer, Integer, Double> ds = instance.configureDemands();
 
 		instance.topology = new Topology(n, cs, ds, scs);
 
@@ -158,9 +158,9 @@ public class Instance {
 	}
 
 	/**
-	 * Configure the whole network
+	 * Create network and its nodes
 	 */
-	private Network configureNetwork() {
+	private Network configureNodes() {
 		Network network = new Network(numberOfNodes, numberOfServers);
 
 		// configure nodes
@@ -175,52 +175,63 @@ public class Instance {
 			}
 		}
 
-		// connect nodes with links
-		for (List<Double> edge : edges) {
-			int n1 = edge.get(0).intValue() - 1;
-			int n2 = edge.get(1).intValue() - 1;
-			double bandwidth = edge.get(2);
-			double powerConsumption = edge.get(3);
-			double delay = edge.get(4);
-
-			if (bandwidth < 0) {
-				networkException("Bandwidth can't be negative");
-			}
-			if (powerConsumption < 0) {
-				networkException("Power consumption can't be negative");
-			}
-			if (delay < 0) {
-				networkException("Delay can't be negative");
-			}
+		return network;
+	}
 
-			Link link = new Link(bandwidth, powerConsumption, delay);
+	/**
+	 * Connect two nodes with a link
+	 *
+	 * @param network network
+	 * @param edge    [node 1, node 2, bandwidth, power, delay], nodes are indexed from 1
+	 */
+	private void configureLink(Network network, double[] edge) {
+		int n1 = (int) edge[0] - 1;
+		int n2 = (int) edge[1] - 1;
+		double bandwidth = edge[2];
+		double powerConsumption = edge[3];
+		double delay = edge[4];
+
+		if (bandwidth < 0) {
+			networkException("Bandwidth can't be negative");
+		}
+		if (powerConsumption < 0) {
+			networkException("Power consumption can't be negative");
+		}
+		if (delay < 0) {
+			networkException("Delay can't be negative");
+		}
 
-			if (!network.addLink(n1, n2, link)) {
-				networkException("Invalid node indexes for link: " + edge);
-			}
+		if (!network.addLink(n1, n2, bandwidth, powerConsumption, delay)) {
+			networkException("Invalid node indexes for link: " + Arrays.toString(edge));
 		}
+	}
 
-		// create servers
+	/**
+	 * Create servers and connect them to nodes
+	 *
+	 * @param network network with nodes
+	 */
+	private void configureServers(Network network) {
 		for (int serverIndex = 0; serverIndex < numberOfServers; serverIndex++) {
-			double pmin = PMin.get(serverIndex);
-			double pmax = PMax.get(serverIndex);
+			double pmin = PMin[serverIndex];
+			double pmax = PMax[serverIndex];
 
 			if (pmin < 0 || pmax < 0) {
 				networkException("Power consumption can't be negative");
 			}
 
-			List<Double> resources = new ArrayList<>(numberOfResources);
-			for (List<Double> list : resourceAvailability) {
-				double res = list.get(serverIndex);
+			double[] resources = new double[numberOfResources];
+			for (int r = 0; r < numberOfResources; r++) {
+				double res = resourceAvailability[r][serverIndex];
 				if (res < 0) {
 					networkException("Resource need can't be negative");
 				}
-				resources.add(res);
+				resources[r] = res;
 			}
 
 			int nodeIdx = 0;
-			for (Double d : serverPlacement.get(serverIndex)) {
-				if (1 == d.intValue()) {
+			for (double d : serverPlacement[serverIndex]) {
+				if (1 == (int) d) {
 					break;
 				}
 				nodeIdx++;
@@ -235,8 +246,6 @@ public class Instance {
 				networkException("Server configured badly");
 			}
 		}
-
-		return network;
 	}
 
 	/**
@@ -249,13 +258,13 @@ public class Instance {
 
 		// create all components
 		for (int componentIndex = 0; componentIndex < numberOfVns; componentIndex++) {
-			List<Double> resources = new ArrayList<>(numberOfResources);
-			for (List<Double> list : requirements) {
-				double res = list.get(componentIndex);
+			double[] resources = new double[numberOfResources];
+			for (int r = 0; r < numberOfResources; r++) {
+				double res = requirements[r][componentIndex];
 				if (res < 0) {
 					componentException("Resource need can't be negative");
 				}
-				resources.add(res);
+				resources[r] = res;
 			}
 			components[componentIndex] = new Component(componentIndex, resources);
 		}
@@ -272,8 +281,8 @@ public class Instance {
 
 		// configure service chains
 		for (int scIndex = 0; scIndex < numberOfServiceChains; scIndex++) {
-			List<Double> chain = serviceChain.get(scIndex);
-			double latency = maximalLatency.get(scIndex);
+			double[] chain = serviceChain[scIndex];
+			double latency = maximalLatency[scIndex];
 
 			if (latency < 0) {
 				componentException("Latency can't be negative");
@@ -282,8 +291,8 @@ public class Instance {
 			ServiceChain sc = new ServiceChain(latency);
 			serviceChains.add(sc);
 
-			for (int componentIndex = 0; componentIndex < chain.size(); componentIndex++) {
-				boolean in = chain.get(componentIndex).intValue() == 1;
+			for (int componentIndex = 0; componentIndex < chain.length; componentIndex++) {
+				boolean in = (int) chain[componentIndex] == 1;
 
 				if (in) {
 					Component c = components[componentIndex];
@@ -296,33 +305,30 @@ public class Instance {
 	}
 
 	/**
-	 * Configure a matrix of demands (between each pair of communicating components)
+	 * Add demand between a pair of communicating components
 	 *
-	 * @return demands
+	 * @param demands matrix of demands
+	 * @param demand  [component 1, component 2, bandwidth], components are indexed from 1
 	 */
-	private Matrix<Integer, Integer, Double> configureDemands() {
-		Matrix<Integer, Integer, Double> demands = new Matrix<>();
-
-		for (List<Double> demand : vnfDemands) {
-			int ci1 = demand.get(0).intValue() - 1;
-			int ci2 = demand.get(1).intValue() - 1;
+	private void configureDemand(IntIntDoubleMatrix demands, double[] demand) {
+		int ci1 = (int) demand[0] - 1;
+		int ci2 = (int) demand[1] - 1;
 
-			if (ci1 < 0 || ci1 >= numberOfVns || ci2 < 0 || ci2 >= numberOfVns) {
-				componentException("Component index out of bounds: " + vnfDemands);
-			}
-
-			double bandwidth = demand.get(2);
-			if (bandwidth < 0) {
-				componentException("Demanded bandwidth can't be negative");
-			}
+		if (ci1 < 0 || ci1 >= numberOfVns || ci2 < 0 || ci2 >= numberOfVns) {
+			componentException("Component index out of bounds: " + Arrays.toString(demand));
+		}
 
-			demands.put(ci1, ci2, bandwidth);
+		double bandwidth = demand[2];
+		if (bandwidth < 0) {
+			componentException("Demanded bandwidth can't be negative");
 		}
 
-		return demands;
+		demands.put(ci1, ci2, bandwidth);
 	}
 
 	/**
+	 * Check everything that is read before edges
+	 *
 	 * @return true if instance is properly configured
 	 */
 	private boolean isValid() {
@@ -346,10 +352,6 @@ public class Instance {
 			return false;
 		}
 
-		if (!Util.checkArray(maximalLatency, numberOfServiceChains)) {
-			return false;
-		}
-
 		// check matrix
 
 		if (!Util.checkMatrix(requirements, numberOfResources, numberOfVns)) {
@@ -364,11 +366,7 @@ public class Instance {
 			return false;
 		}
 
-		if (!Util.checkMatrix(serviceChain, numberOfServiceChains, numberOfVns)) {
-			return false;
-		}
-
-		return Util.checkMatrix(edges, -1, 5) && Util.checkMatrix(vnfDemands, -1, 3);
+		return Util.checkMatrix(serviceChain, numberOfServiceChains, numberOfVns);
 
 	}
 
@@ -0,0 +1,706 @@
+package hr.fer.tel.hmo.instance;
+
+import hr.fer.tel.hmo.network.Network;
+import hr.fer.tel.hmo.network.Node;
+import hr.fer.tel.hmo.network.Server;
+import hr.fer.tel.hmo.network.Topology;
+import hr.fer.tel.hmo.util.IntIntDoubleMatrix;
+import hr.fer.tel.hmo.vnf.Component;
+import hr.fer.tel.hmo.vnf.ServiceChain;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic instances for scaling tests.
+ * <p>
+ * Instance is generated once in the constructor. It can then be written in the text format
+ * described in instance-definition.txt or turned directly into a {@link Topology},
+ * both give the same instance.
+ * <p>
+ * Tightness in (0,1) is the expected utilisation of server resources, link bandwidth
+ * and latency budget of service chains. Higher tightness gives harder instances.
+ */
+public class InstanceGenerator {
+
+	/**
+	 * Shape of network
+	 */
+	public enum Shape {
+		/**
+		 * k-ary fat tree: (k/2)^2 core, k pods with k/2 aggregation and k/2 edge nodes.
+		 * Smallest k with at least requested number of nodes is used.
+		 */
+		FAT_TREE,
+		/**
+		 * Core ring where every core node closes a smaller ring of access nodes
+		 */
+		RING_OF_RINGS,
+		/**
+		 * Nodes in unit square connected to all nodes closer than a radius, delay is proportional to distance
+		 */
+		RANDOM_GEOMETRIC
+	}
+
+	private static final int MAX_CHAIN_LENGTH = 6;
+
+	/**
+	 * How many times busiest links carry more than average link
+	 */
+	private static final double HOTSPOT = 4.0;
+
+	private final SplittableRandom random;
+
+	// network
+	private int numberOfNodes;
+	private double[] nodePower;
+
+	/**
+	 * Undirected links, both directions are written
+	 */
+	private int numberOfLinks;
+	private int[] linkA;
+	private int[] linkB;
+	private double[] linkBandwidth;
+	private double[] linkPower;
+	private double[] linkDelay;
+
+	/**
+	 * linkKeys contains a*N+b for every link with a < b
+	 */
+	private final Set<Long> linkKeys = new HashSet<>();
+
+	// servers
+	private final int numberOfServers;
+	private final int numberOfResources;
+	private final int[] serverNode;
+	private final double[] pmin;
+	private final double[] pmax;
+
+	/**
+	 * available[resource][server]
+	 */
+	private final double[][] available;
+
+	// components and chains
+	private final int numberOfComponents;
+
+	/**
+	 * required[resource][component]
+	 */
+	private final double[][] required;
+
+	/**
+	 * chains[chain] = sorted component indexes, order in text format is given by index
+	 */
+	private final int[][] chains;
+	private final double[] latency;
+	private final IntIntDoubleMatrix demands;
+
+	/**
+	 * Pairs with demand in order they were generated
+	 */
+	private int numberOfDemands;
+	private int[] demandFrom;
+	private int[] demandTo;
+
+	/**
+	 * @param shape      network shape
+	 * @param nodes      number of nodes (fat tree rounds it up)
+	 * @param links      number of undirected links, shapes with more links in their structure keep them
+	 * @param servers    number of servers
+	 * @param components number of components
+	 * @param chains     number of service chains
+	 * @param resources  number of resources per server
+	 * @param tightness  expected utilisation in (0,1)
+	 * @param seed       random seed, same arguments give same instance
+	 */
+	public InstanceGenerator(Shape shape, int nodes, int links, int servers, int components,
+	                         int chains, int resources, double tightness, long seed) {
+		if (nodes < 2 || servers < 1 || components < 2 || chains < 1 || resources < 1) {
+			throw new IllegalArgumentException("Instance is too small");
+		}
+		if (!(tightness > 0 && tightness < 1)) {
+			throw new IllegalArgumentException("Tightness must be in (0,1): " + tightness);
+		}
+
+		this.random = new SplittableRandom(seed);
+		this.numberOfServers = servers;
+		this.numberOfResources = resources;
+		this.numberOfComponents = components;
+
+		int[] attach;
+		switch (shape) {
+			case FAT_TREE:
+				attach = fatTree(nodes);
+				break;
+			case RING_OF_RINGS:
+				attach = ringOfRings(nodes);
+				break;
+			case RANDOM_GEOMETRIC:
+				attach = randomGeometric(nodes, links);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown shape " + shape);
+		}
+		while (numberOfLinks < links && numberOfLinks < (long) numberOfNodes * (numberOfNodes - 1) / 2) {
+			int a = random.nextInt(numberOfNodes);
+			int b = random.nextInt(numberOfNodes);
+			addLink(a, b, 0.05);
+		}
+
+		nodePower = new double[numberOfNodes];
+		for (int n = 0; n < numberOfNodes; n++) {
+			nodePower[n] = round(80 + 520 * random.nextDouble());
+		}
+
+		// components
+		required = new double[resources][components];
+		double[] totalRequired = new double[resources];
+		for (int r = 0; r < resources; r++) {
+			for (int c = 0; c < components; c++) {
+				required[r][c] = round(0.2 + 0.7 * random.nextDouble());
+				totalRequired[r] += required[r][c];
+			}
+		}
+
+		// servers, capacity is scaled so that expected utilisation is tightness
+		serverNode = new int[servers];
+		pmin = new double[servers];
+		pmax = new double[servers];
+		available = new double[resources][servers];
+		double[] weight = new double[servers];
+		double totalWeight = 0;
+		for (int s = 0; s < servers; s++) {
+			serverNode[s] = attach[s % attach.length];
+			pmax[s] = round(160 + 130 * random.nextDouble());
+			pmin[s] = round(pmax[s] * (0.2 + 0.2 * random.nextDouble()));
+			weight[s] = 0.5 + random.nextDouble();
+			totalWeight += weight[s];
+		}
+		for (int r = 0; r < resources; r++) {
+			for (int s = 0; s < servers; s++) {
+				double capacity = totalRequired[r] / tightness * weight[s] / totalWeight;
+				// every server can take at least the biggest component
+				available[r][s] = round(Math.max(capacity, 1.0));
+			}
+		}
+
+		// chains and demands
+		this.chains = new int[chains][];
+		this.latency = new double[chains];
+		this.demands = new IntIntDoubleMatrix(chains * 2);
+		demandFrom = new int[16];
+		demandTo = new int[16];
+		int maxLength = Math.min(MAX_CHAIN_LENGTH, components);
+		double maxDemand = 0;
+		double totalDemand = 0;
+		for (int i = 0; i < chains; i++) {
+			int length = 2 + random.nextInt(maxLength - 1);
+			int[] chain = distinct(length, components);
+			Arrays.sort(chain);
+			this.chains[i] = chain;
+			for (int j = 1; j < length; j++) {
+				if (!demands.contains(chain[j - 1], chain[j])) {
+					double bandwidth = 50 + 10 * random.nextInt(16);
+					demands.put(chain[j - 1], chain[j], bandwidth);
+					maxDemand = Math.max(maxDemand, bandwidth);
+					totalDemand += bandwidth;
+					if (numberOfDemands == demandFrom.length) {
+						demandFrom = Arrays.copyOf(demandFrom, 2 * numberOfDemands);
+						demandTo = Arrays.copyOf(demandTo, 2 * numberOfDemands);
+					}
+					demandFrom[numberOfDemands] = chain[j - 1];
+					demandTo[numberOfDemands] = chain[j];
+					numberOfDemands++;
+				}
+			}
+		}
+
+		// latency and bandwidth are scaled with average route length
+		double[] hops = hops();
+		double meanDelay = 0;
+		for (int l = 0; l < numberOfLinks; l++) {
+			meanDelay += linkDelay[l];
+		}
+		meanDelay /= numberOfLinks;
+
+		for (int i = 0; i < chains; i++) {
+			int pairs = this.chains[i].length - 1;
+			// routes with minimal power are longer than shortest ones, so diameter is used
+			latency[i] = round(pairs * hops[1] * meanDelay / tightness);
+		}
+
+		linkBandwidth = new double[numberOfLinks];
+		linkPower = new double[numberOfLinks];
+		// load is spread over links unevenly, links close to core carry more
+		double load = HOTSPOT * totalDemand * hops[0] / (2.0 * numberOfLinks);
+		for (int l = 0; l < numberOfLinks; l++) {
+			double bandwidth = Math.max(maxDemand, load) / tightness * (0.8 + 0.4 * random.nextDouble());
+			linkBandwidth[l] = Math.ceil(bandwidth);
+			linkPower[l] = round(5 + 25 * random.nextDouble());
+		}
+	}
+
+	/**
+	 * @return generated instance as topology
+	 */
+	public Topology topology() {
+		Network network = new Network(numberOfNodes, numberOfServers);
+		for (int n = 0; n < numberOfNodes; n++) {
+			network.addNode(new Node(n, nodePower[n]));
+		}
+		for (int l = 0; l < numberOfLinks; l++) {
+			network.addLink(linkA[l], linkB[l], linkBandwidth[l], linkPower[l], linkDelay[l]);
+			network.addLink(linkB[l], linkA[l], linkBandwidth[l], linkPower[l], linkDelay[l]);
+		}
+		network.freeze();
+
+		for (int s = 0; s < numberOfServers; s++) {
+			double[] resources = new double[numberOfResources];
+			for (int r = 0; r < numberOfResources; r++) {
+				resources[r] = available[r][s];
+			}
+			network.addServer(new Server(s, pmin[s], pmax[s], network.getNode(serverNode[s]), resources));
+		}
+
+		Component[] components = new Component[numberOfComponents];
+		for (int c = 0; c < numberOfComponents; c++) {
+			double[] resources = new double[numberOfResources];
+			for (int r = 0; r < numberOfResources; r++) {
+				resources[r] = required[r][c];
+			}
+			components[c] = new Component(c, resources);
+		}
+
+		List<ServiceChain> serviceChains = new ArrayList<>(chains.length);
+		for (int i = 0; i < chains.length; i++) {
+			ServiceChain sc = new ServiceChain(latency[i]);
+			for (int c : chains[i]) {
+				sc.addComponent(components[c]);
+			}
+			serviceChains.add(sc);
+		}
+
+		IntIntDoubleMatrix ds = new IntIntDoubleMatrix(demands.size());
+		demands.forEach(ds::put);
+
+		return new Topology(network, components, ds, serviceChains);
+	}
+
+	/**
+	 * Write generated instance in text format. Rows are written one by one,
+	 * nothing as big as the whole file is kept in memory.
+	 *
+	 * @param stream output stream, it isn't closed
+	 * @throws IOException on write exception
+	 */
+	public void write(OutputStream stream) throws IOException {
+		Writer w = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII), 1 << 16);
+
+		w.write("numServers = " + numberOfServers + ";\n");
+		w.write("numVns = " + numberOfComponents + ";\n");
+		w.write("numRes = " + numberOfResources + ";\n");
+		w.write("numNodes = " + numberOfNodes + ";\n");
+		w.write("numServiceChains = " + chains.length + ";\n");
+
+		array(w, "P_max", pmax);
+		array(w, "P_min", pmin);
+
+		w.write("req = [\n");
+		for (double[] row : required) {
+			row(w, row);
+		}
+		w.write("];\n");
+
+		w.write("av = [\n");
+		for (double[] row : available) {
+			row(w, row);
+		}
+		w.write("];\n");
+
+		w.write("al = [\n");
+		for (int s = 0; s < numberOfServers; s++) {
+			indicator(w, numberOfNodes, new int[]{serverNode[s]});
+		}
+		w.write("];\n");
+
+		w.write("sc = [\n");
+		for (int[] chain : chains) {
+			indicator(w, numberOfComponents, chain);
+		}
+		w.write("];\n");
+
+		array(w, "P", nodePower);
+
+		w.write("Edges = [\n");
+		for (int l = 0; l < numberOfLinks; l++) {
+			edge(w, linkA[l], linkB[l], l);
+			edge(w, linkB[l], linkA[l], l);
+		}
+		w.write("];\n");
+
+		w.write("VnfDemands = [\n");
+		for (int i = 0; i < numberOfDemands; i++) {
+			int c1 = demandFrom[i];
+			int c2 = demandTo[i];
+			w.write("[" + (c1 + 1) + "," + (c2 + 1) + "," + format(demands.get(c1, c2, 0.0)) + "]\n");
+		}
+		w.write("];\n");
+
+		array(w, "lat", latency);
+		w.flush();
+	}
+
+	/**
+	 * Usage: SHAPE nodes links servers components chains resources tightness seed [file]
+	 * <p>
+	 * Instance is written to file or standard output.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 9) {
+			System.err.println("Usage: FAT_TREE|RING_OF_RINGS|RANDOM_GEOMETRIC "
+					+ "nodes links servers components chains resources tightness seed [file]");
+			return;
+		}
+
+		InstanceGenerator g = new InstanceGenerator(
+				Shape.valueOf(args[0]),
+				Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+				Integer.parseInt(args[4]), Integer.parseInt(args[5]), Integer.parseInt(args[6]),
+				Double.parseDouble(args[7]), Long.parseLong(args[8])
+		);
+
+		if (args.length > 9) {
+			try (OutputStream out = Files.newOutputStream(Paths.get(args[9]))) {
+				g.write(out);
+			}
+		} else {
+			g.write(System.out);
+		}
+	}
+
+	// ==============================================================================
+
+	/**
+	 * @return nodes that servers are attached to
+	 */
+	private int[] fatTree(int nodes) {
+		int k = 2;
+		while (5 * k * k / 4 < nodes) {
+			k += 2;
+		}
+		int half = k / 2;
+		int core = half * half;
+		initNodes(5 * k * k / 4);
+
+		int[] edges = new int[k * half];
+		for (int pod = 0; pod < k; pod++) {
+			int agg0 = core + pod * k;
+			int edge0 = agg0 + half;
+			for (int a = 0; a < half; a++) {
+				for (int c = 0; c < half; c++) {
+					addLink(agg0 + a, a * half + c, 0.01);
+				}
+				for (int e = 0; e < half; e++) {
+					addLink(agg0 + a, edge0 + e, 0.03);
+				}
+			}
+			for (int e = 0; e < half; e++) {
+				edges[pod * half + e] = edge0 + e;
+			}
+		}
+		return edges;
+	}
+
+	/**
+	 * @return nodes that servers are attached to
+	 */
+	private int[] ringOfRings(int nodes) {
+		initNodes(nodes);
+		int core = Math.max(1, Math.min(nodes, (int) Math.round(Math.sqrt(nodes))));
+		for (int c = 0; c < core && core > 1; c++) {
+			addLink(c, (c + 1) % core, 0.01);
+		}
+
+		// access nodes are dealt to core nodes round robin, each core node closes a ring with its own
+		int[] last = new int[core];
+		for (int c = 0; c < core; c++) {
+			last[c] = c;
+		}
+		for (int n = core; n < nodes; n++) {
+			int c = (n - core) % core;
+			addLink(last[c], n, 0.05);
+			last[c] = n;
+		}
+		for (int c = 0; c < core; c++) {
+			if (last[c] != c) {
+				addLink(last[c], c, 0.05);
+			}
+		}
+
+		if (core == nodes) {
+			return range(0, nodes);
+		}
+		return range(core, nodes);
+	}
+
+	/**
+	 * @return nodes that servers are attached to
+	 */
+	private int[] randomGeometric(int nodes, int links) {
+		initNodes(nodes);
+		double[] x = new double[nodes];
+		double[] y = new double[nodes];
+		for (int n = 0; n < nodes; n++) {
+			x[n] = random.nextDouble();
+			y[n] = random.nextDouble();
+		}
+
+		// radius that gives expected number of links
+		double degree = Math.max(2.0, 2.0 * links / nodes);
+		double radius = Math.min(Math.sqrt(2), Math.sqrt(degree / (Math.PI * nodes)));
+
+		// grid of cells with side radius, only neighbouring cells have to be searched
+		int cells = Math.max(1, (int) (1 / radius));
+		int[] head = new int[cells * cells];
+		int[] next = new int[nodes];
+		Arrays.fill(head, -1);
+		for (int n = 0; n < nodes; n++) {
+			int cell = cell(x[n], cells) * cells + cell(y[n], cells);
+			next[n] = head[cell];
+			head[cell] = n;
+		}
+
+		for (int n = 0; n < nodes; n++) {
+			int cx = cell(x[n], cells);
+			int cy = cell(y[n], cells);
+			for (int i = Math.max(0, cx - 1); i <= Math.min(cells - 1, cx + 1); i++) {
+				for (int j = Math.max(0, cy - 1); j <= Math.min(cells - 1, cy + 1); j++) {
+					for (int m = head[i * cells + j]; m >= 0; m = next[m]) {
+						double d = Math.hypot(x[n] - x[m], y[n] - y[m]);
+						if (m > n && d <= radius) {
+							addLink(n, m, delay(d));
+						}
+					}
+				}
+			}
+		}
+
+		// connect every other component to nearest node of component of node 0
+		int[] component = components();
+		for (int n = 0; n < nodes; n++) {
+			if (component[n] == component[0] || component[n] != n) {
+				continue; // n isn't first node of its component
+			}
+			int best = -1;
+			double bestD = Double.MAX_VALUE;
+			for (int m = 0; m < nodes; m++) {
+				double d = Math.hypot(x[n] - x[m], y[n] - y[m]);
+				if (component[m] == component[0] && d < bestD) {
+					best = m;
+					bestD = d;
+				}
+			}
+			addLink(n, best, delay(bestD));
+		}
+
+		return range(0, nodes);
+	}
+
+	private static int cell(double v, int cells) {
+		return Math.min(cells - 1, (int) (v * cells));
+	}
+
+	private static double delay(double distance) {
+		return Math.max(0.001, Math.round(distance * 1000) / 10000.0);
+	}
+
+	/**
+	 * @return component[n] = smallest node index in n's connected component
+	 */
+	private int[] components() {
+		int[] parent = range(0, numberOfNodes);
+		for (int l = 0; l < numberOfLinks; l++) {
+			int a = find(parent, linkA[l]);
+			int b = find(parent, linkB[l]);
+			parent[Math.max(a, b)] = Math.min(a, b);
+		}
+		for (int n = 0; n < numberOfNodes; n++) {
+			parent[n] = find(parent, n);
+		}
+		return parent;
+	}
+
+	private static int find(int[] parent, int n) {
+		while (parent[n] != n) {
+			parent[n] = parent[parent[n]];
+			n = parent[n];
+		}
+		return n;
+	}
+
+	/**
+	 * Estimate average and maximal number of hops with breadth first search from a few nodes
+	 *
+	 * @return [average, maximal]
+	 */
+	private double[] hops() {
+		int[] start = new int[numberOfNodes + 1];
+		for (int l = 0; l < numberOfLinks; l++) {
+			start[linkA[l] + 1]++;
+			start[linkB[l] + 1]++;
+		}
+		for (int n = 0; n < numberOfNodes; n++) {
+			start[n + 1] += start[n];
+		}
+		int[] adjacent = new int[2 * numberOfLinks];
+		int[] fill = Arrays.copyOf(start, numberOfNodes);
+		for (int l = 0; l < numberOfLinks; l++) {
+			adjacent[fill[linkA[l]]++] = linkB[l];
+			adjacent[fill[linkB[l]]++] = linkA[l];
+		}
+
+		int[] hops = new int[numberOfNodes];
+		int[] queue = new int[numberOfNodes];
+		long sum = 0;
+		long count = 0;
+		int max = 1;
+		for (int sample = 0; sample < 8; sample++) {
+			Arrays.fill(hops, -1);
+			int from = random.nextInt(numberOfNodes);
+			int headIdx = 0;
+			int tail = 0;
+			queue[tail++] = from;
+			hops[from] = 0;
+			while (headIdx < tail) {
+				int n = queue[headIdx++];
+				sum += hops[n];
+				count++;
+				max = Math.max(max, hops[n]);
+				for (int k = start[n]; k < start[n + 1]; k++) {
+					int m = adjacent[k];
+					if (hops[m] < 0) {
+						hops[m] = hops[n] + 1;
+						queue[tail++] = m;
+					}
+				}
+			}
+		}
+		return new double[]{Math.max(1.0, (double) sum / count), max};
+	}
+
+	private void initNodes(int nodes) {
+		numberOfNodes = nodes;
+		linkA = new int[16];
+		linkB = new int[16];
+		linkDelay = new double[16];
+	}
+
+	/**
+	 * Add undirected link if nodes are different and not already linked
+	 */
+	private void addLink(int a, int b, double delay) {
+		if (a == b || !linkKeys.add((long) Math.min(a, b) * numberOfNodes + Math.max(a, b))) {
+			return;
+		}
+		if (numberOfLinks == linkA.length) {
+			linkA = Arrays.copyOf(linkA, 2 * numberOfLinks);
+			linkB = Arrays.copyOf(linkB, 2 * numberOfLinks);
+			linkDelay = Arrays.copyOf(linkDelay, 2 * numberOfLinks);
+		}
+		linkA[numberOfLinks] = a;
+		linkB[numberOfLinks] = b;
+		linkDelay[numberOfLinks] = delay;
+		numberOfLinks++;
+	}
+
+	/**
+	 * @return n distinct random values from [0,bound>
+	 */
+	private int[] distinct(int n, int bound) {
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			int v;
+			boolean seen;
+			do {
+				v = random.nextInt(bound);
+				seen = false;
+				for (int j = 0; j < i; j++) {
+					seen |= values[j] == v;
+				}
+			} while (seen);
+			values[i] = v;
+		}
+		return values;
+	}
+
+	private static int[] range(int from, int to) {
+		int[] values = new int[to - from];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = from + i;
+		}
+		return values;
+	}
+
+	private static double round(double v) {
+		return Math.round(v * 100) / 100.0;
+	}
+
+	private static String format(double v) {
+		return v == Math.rint(v) && Math.abs(v) < 1e15 ? Long.toString((long) v) : Double.toString(v);
+	}
+
+	private void array(Writer w, String name, double[] values) throws IOException {
+		w.write(name);
+		w.write(" = ");
+		row(w, values);
+		w.write(";\n");
+	}
+
+	private void row(Writer w, double[] values) throws IOException {
+		w.write('[');
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				w.write(',');
+			}
+			w.write(format(values[i]));
+		}
+		w.write("]\n");
+	}
+
+	/**
+	 * Write a row of zeros with ones at given (sorted) indexes
+	 */
+	private void indicator(Writer w, int length, int[] ones) throws IOException {
+		char[] row = new char[2 * length + 1];
+		row[0] = '[';
+		for (int i = 0; i < length; i++) {
+			row[2 * i + 1] = '0';
+			row[2 * i + 2] = ',';
+		}
+		for (int i : ones) {
+			row[2 * i + 1] = '1';
+		}
+		row[2 * length] = ']';
+		w.write(row);
+		w.write('\n');
+	}
+
+	private void edge(Writer w, int a, int b, int l) throws IOException {
+		w.write("[" + (a + 1) + "," + (b + 1) + "," + format(linkBandwidth[l]) + ","
+				+ format(linkPower[l]) + "," + format(linkDelay[l]) + "]\n");
+	}
+}
@@ -1,33 +1,61 @@
 package hr.fer.tel.hmo.instance;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 /**
- * Class used for reading instance definition from stream
+ * Class used for reading instance definition from stream.
+ * <p>
+ * It is a hand written tokenizer that reads bytes from its own buffer and parses
+ * numbers straight into primitive arrays. Errors are reported with line and column.
+ * Big matrices can be streamed row by row with {@link #rows(int, RowConsumer)},
+ * so they are never kept in memory as a whole.
  */
 class InstanceReader implements AutoCloseable {
 
 	/**
-	 * Regular expression for finding numbers in double format
+	 * Consumer of one matrix row
 	 */
-	private static final Pattern NUM = Pattern.compile("[-+]?[0-9]*\\.?[0-9]+([eE][-+]?[0-9]+)?");
+	@FunctionalInterface
+	interface RowConsumer {
+
+		/**
+		 * @param row    row index
+		 * @param values values in row, array is reused for next row
+		 */
+		void accept(int row, double[] values);
+	}
+
+	private static final int BUFFER_SIZE = 1 << 16;
 
 	/**
-	 * Reader used for reading lines
+	 * Exact powers of ten, double can represent all of them
 	 */
-	private final BufferedReader reader;
+	private static final double[] POW10 = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * Stream from which bytes are read
+	 */
+	private final InputStream stream;
+
+	private final byte[] buffer;
+	private int position;
+	private int limit;
 
 	/**
-	 * Current line number for notifying about errors
+	 * Current line and column for notifying about errors, both start from 1
 	 */
 	private int lineNumber;
+	private int column;
+
+	/**
+	 * Characters of current number, used when it can't be parsed exactly on the fast path
+	 */
+	private char[] number;
 
 	/**
 	 * Create a new reader from given stream
@@ -35,64 +63,95 @@ class InstanceReader implements AutoCloseable {
 	 * @param stream input stream
 	 */
 	InstanceReader(InputStream stream) {
-		reader = new BufferedReader(new InputStreamReader(stream));
-		lineNumber = 0;
+		this.stream = stream;
+		buffer = new byte[BUFFER_SIZE];
+		number = new char[32];
+		lineNumber = 1;
+		column = 1;
 	}
 
 	/**
-	 * Read a single value from stream
+	 * Read a single value from stream: name = X;
 	 *
 	 * @return value
 	 * @throws IOException on read exception
 	 */
-	Double singleValue() throws IOException {
-		String line = readLine();
-		String[] sl = line.split("=");
-		if (sl.length != 2) {
-			throwException("Single value wrong format, expecting value=X;");
-		}
-
-		List<Double> num = getNumbers(sl[1]);
-		if (num.size() != 1) {
-			throwException("Single value wrong format, expecting value=X;");
-		}
-
-		return num.get(0);
+	double singleValue() throws IOException {
+		header();
+		double value = number();
+		end();
+		return value;
 	}
 
 	/**
-	 * Read array of values from stream
+	 * Read array of values from stream: name = [X,X,...];
 	 *
 	 * @return array of values
 	 * @throws IOException on read exception
 	 */
-	List<Double> array() throws IOException {
-		String line = readLine();
-		String[] sl = line.split("=");
-		if (sl.length != 2) {
-			throwException("Array wrong format, expecting array=[X,X,...];");
+	double[] array() throws IOException {
+		header();
+		double[] values = list(new double[16], -1);
+		end();
+		return values;
+	}
+
+	/**
+	 * Read matrix of values from stream. Every row must have the same number of values.
+	 *
+	 * @return matrix of values
+	 * @throws IOException on read exception
+	 */
+	double[][] matrix() throws IOException {
+		header();
+		expect('[');
+
+		double[][] matrix = new double[16][];
+		int rows = 0;
+		int columns = -1;
+		while (nextRow()) {
+			double[] row = list(new double[columns < 0 ? 16 : columns], columns);
+			columns = row.length;
+			if (rows == matrix.length) {
+				matrix = Arrays.copyOf(matrix, 2 * rows);
+			}
+			matrix[rows++] = row;
 		}
 
-		return getNumbers(sl[1]);
+		end();
+		return Arrays.copyOf(matrix, rows);
 	}
 
 	/**
-	 * Read matrix of values from stream
+	 * Stream matrix of values row by row, every row must have given number of values.
+	 * Exception thrown by consumer is reported at the row's position.
 	 *
-	 * @return matrix of values
+	 * @param columns  number of values in a row
+	 * @param consumer consumer of rows
+	 * @return number of rows
 	 * @throws IOException on read exception
 	 */
-	List<List<Double>> matrix() throws IOException {
-		List<List<Double>> matrix = new ArrayList<>();
-		readLine(); // read first line
+	int rows(int columns, RowConsumer consumer) throws IOException {
+		header();
+		expect('[');
 
-		String line = readLine();
-		while (!line.contains("];")) {
-			matrix.add(getNumbers(line));
-			line = readLine();
+		double[] row = new double[columns];
+		int rows = 0;
+		while (nextRow()) {
+			int line = lineNumber;
+			int col = column;
+			list(row, columns);
+			try {
+				consumer.accept(rows++, row);
+			} catch (IllegalArgumentException ex) {
+				throw new IllegalArgumentException(
+						String.format("[%d:%d] %s", line, col, ex.getMessage()), ex
+				);
+			}
 		}
 
-		return matrix;
+		end();
+		return rows;
 	}
 
 	/**
@@ -101,50 +160,278 @@ class InstanceReader implements AutoCloseable {
 	 * @throws IOException on close exception
 	 */
 	public void close() throws IOException {
-		reader.close();
+		stream.close();
+	}
+
+	/**
+	 * Read value's name and equals sign, name is ignored
+	 */
+	private void header() throws IOException {
+		int c = skipWhitespace();
+		if (!isNameStart(c)) {
+			throwException("Expecting name of a value");
+		}
+		while (isNamePart(peek())) {
+			read();
+		}
+		expect('=');
 	}
 
 	/**
-	 * Read next line from stream, skip empty lines
+	 * Read ';' at the end of a value, it is optional
+	 */
+	private void end() throws IOException {
+		if (skipWhitespace() == ';') {
+			read();
+		}
+	}
+
+	/**
+	 * Move to next matrix row
 	 *
-	 * @return next line
-	 * @throws IOException when there are no more lines or exception on read line
+	 * @return true if there is a row, false if matrix has ended
 	 */
-	private String readLine() throws IOException {
-		String line = reader.readLine();
-		if (line == null) {
-			throw new IOException("No more lines");
+	private boolean nextRow() throws IOException {
+		int c = skipWhitespace();
+		if (c == ',') {
+			read();
+			c = skipWhitespace();
+		}
+		if (c == ']') {
+			read();
+			return false;
 		}
-		lineNumber++;
-		line = line.trim();
-		if (line.isEmpty()) {
-			return readLine();
+		if (c != '[') {
+			throwException("Expecting '[' or ']' in matrix");
 		}
-		return line;
+		return true;
 	}
 
 	/**
-	 * Throw exception at given line number with custom message
+	 * Read a list [X,X,...] into given array
 	 *
-	 * @param msg custom message
+	 * @param values array to fill, it is grown if size isn't fixed
+	 * @param size   expected number of values or -1 if any number is allowed
+	 * @return filled array, its length is number of values
 	 */
-	private void throwException(String msg) {
-		throw new IllegalArgumentException(String.format("[%d] %s", lineNumber, msg));
+	private double[] list(double[] values, int size) throws IOException {
+		expect('[');
+
+		int n = 0;
+		if (skipWhitespace() == ']') {
+			read();
+		} else {
+			while (true) {
+				if (n == values.length) {
+					if (size >= 0) {
+						throwException("Expecting " + size + " values");
+					}
+					values = Arrays.copyOf(values, Math.max(16, 2 * n));
+				}
+				values[n++] = number();
+
+				int c = skipWhitespace();
+				read();
+				if (c == ']') {
+					break;
+				}
+				if (c != ',') {
+					throwException("Expecting ',' or ']' but found " + describe(c));
+				}
+				if (skipWhitespace() == ']') {
+					read(); // trailing comma
+					break;
+				}
+			}
+		}
+
+		if (size >= 0 && n != size) {
+			throwException("Expecting " + size + " values but found " + n);
+		}
+		return n == values.length ? values : Arrays.copyOf(values, n);
+	}
+
+	/**
+	 * Read a number in double format: [-+]digits[.digits][(e|E)[-+]digits]
+	 *
+	 * @return number
+	 */
+	private double number() throws IOException {
+		int c = skipWhitespace();
+
+		int length = 0;
+		boolean negative = false;
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			append(length++, read());
+			c = peek();
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean exact = true;
+		boolean any = false;
+
+		while (isDigit(c)) {
+			any = true;
+			if (digits < 18) {
+				mantissa = 10 * mantissa + (c - '0');
+				if (mantissa != 0) {
+					digits++;
+				}
+			} else {
+				exact = false;
+			}
+			append(length++, read());
+			c = peek();
+		}
+
+		if (c == '.') {
+			append(length++, read());
+			c = peek();
+			while (isDigit(c)) {
+				any = true;
+				if (digits < 18) {
+					mantissa = 10 * mantissa + (c - '0');
+					if (mantissa != 0) {
+						digits++;
+					}
+					exponent--;
+				} else {
+					exact = false;
+				}
+				append(length++, read());
+				c = peek();
+			}
+		}
+
+		if (!any) {
+			throwException("Expecting a number but found " + describe(c));
+		}
+
+		if (c == 'e' || c == 'E') {
+			append(length++, read());
+			c = peek();
+			if (c == '-' || c == '+') {
+				append(length++, read());
+				c = peek();
+			}
+			if (!isDigit(c)) {
+				throwException("Expecting exponent but found " + describe(c));
+			}
+			exact = false; // rare, let the JDK parse it
+			while (isDigit(c)) {
+				append(length++, read());
+				c = peek();
+			}
+		}
+
+		if (exact && mantissa < (1L << 53) && -exponent < POW10.length) {
+			// both values are exact, so division is correctly rounded
+			double value = exponent == 0 ? mantissa : mantissa / POW10[-exponent];
+			return negative ? -value : value;
+		}
+		return Double.parseDouble(new String(number, 0, length));
+	}
+
+	private void append(int i, int c) {
+		if (i == number.length) {
+			number = Arrays.copyOf(number, 2 * i);
+		}
+		number[i] = (char) c;
 	}
 
 	/**
-	 * Extract all numbers from given string into a list
+	 * Read given character after optional whitespace
 	 *
-	 * @param str string
-	 * @return list of numbers
+	 * @param expected character
+	 */
+	private void expect(char expected) throws IOException {
+		int c = skipWhitespace();
+		if (c != expected) {
+			throwException("Expecting '" + expected + "' but found " + describe(c));
+		}
+		read();
+	}
+
+	/**
+	 * Skip whitespace
+	 *
+	 * @return next character (not consumed) or -1 on end of stream
+	 */
+	private int skipWhitespace() throws IOException {
+		int c = peek();
+		while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+			read();
+			c = peek();
+		}
+		return c;
+	}
+
+	/**
+	 * @return next byte without consuming it or -1 on end of stream
+	 */
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position] & 0xff;
+	}
+
+	/**
+	 * @return next byte, line and column are updated
 	 */
-	private List<Double> getNumbers(String str) {
-		List<Double> numbers = new ArrayList<>();
-		Matcher m = NUM.matcher(str);
-		while (m.find()) {
-			numbers.add(Double.parseDouble(m.group()));
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			throwException("Unexpected end of stream");
 		}
-		return numbers;
+		int c = buffer[position++] & 0xff;
+		if (c == '\n') {
+			lineNumber++;
+			column = 1;
+		} else {
+			column++;
+		}
+		return c;
+	}
+
+	/**
+	 * @return false if there are no more bytes
+	 */
+	private boolean fill() throws IOException {
+		int n = stream.read(buffer, 0, buffer.length);
+		if (n <= 0) {
+			return false;
+		}
+		position = 0;
+		limit = n;
+		return true;
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isNameStart(int c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_';
+	}
+
+	private static boolean isNamePart(int c) {
+		return isNameStart(c) || isDigit(c);
+	}
+
+	private static String describe(int c) {
+		return c < 0 ? "end of stream" : "'" + (char) c + "'";
+	}
+
+	/**
+	 * Throw exception at current line and column with custom message
+	 *
+	 * @param msg custom message
+	 */
+	private void throwException(String msg) {
+		throw new IllegalArgumentException(String.format("[%d:%d] %s", lineNumber, column, msg));
 	}
 
 }
@@ -0,0 +1,265 @@
+package hr.fer.tel.hmo.instance;
+
+import hr.fer.tel.hmo.network.Network;
+import hr.fer.tel.hmo.network.Node;
+import hr.fer.tel.hmo.network.Server;
+import hr.fer.tel.hmo.network.Topology;
+import hr.fer.tel.hmo.util.IntIntDoubleMatrix;
+import hr.fer.tel.hmo.vnf.Component;
+import hr.fer.tel.hmo.vnf.ServiceChain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a validated topology.
+ * <p>
+ * Snapshot is written once from a topology read with {@link Instance} and loaded
+ * through a memory mapped file, so there is no text to tokenize and validate again.
+ * Layout (big endian):
+ * <pre>
+ * int magic, int version
+ * int nodes, int servers, int links, int components, int resources, int chains, int demands
+ * nodes:      double power
+ * links:      int from, int to, double bandwidth, double power, double delay  (in link id order)
+ * servers:    byte present [int node, double pmin, double pmax, double resource...]
+ * components: double resource...
+ * chains:     double latency, int count, int component...
+ * demands:    int component 1, int component 2, double bandwidth
+ * long crc32 of everything before it
+ * </pre>
+ * Derived tables aren't stored, minimal delays are computed by {@link hr.fer.tel.hmo.network.Distances}
+ * only for nodes routes end in, so loading is linear in size of the topology.
+ */
+public class TopologySnapshot {
+
+	/**
+	 * "HMOT"
+	 */
+	private static final int MAGIC = 0x484D4F54;
+
+	/**
+	 * Has to be increased whenever layout changes
+	 */
+	static final int VERSION = 1;
+
+	private static final int HEADER = 9 * Integer.BYTES;
+
+	private TopologySnapshot() {
+		// can't be created
+	}
+
+	/**
+	 * Write topology to a snapshot file, existing file is replaced
+	 *
+	 * @param topology topology
+	 * @param path     snapshot file
+	 * @throws IOException on write exception
+	 */
+	public static void write(Topology topology, Path path) throws IOException {
+		Network network = topology.getNetwork();
+		Component[] components = topology.getComponents();
+		List<ServiceChain> chains = topology.getServiceChains();
+		IntIntDoubleMatrix demands = topology.getDemands();
+
+		int N = network.getNumberOfNodes();
+		int S = network.getNumberOfServers();
+		int L = network.getNumberOfLinks();
+		int C = components.length;
+		int R = topology.getResources().getNumberOfResources();
+
+		long size = HEADER
+				+ (long) N * Double.BYTES
+				+ (long) L * (2 * Integer.BYTES + 3 * Double.BYTES)
+				+ (long) S * (1 + Integer.BYTES + (2 + R) * Double.BYTES)
+				+ (long) C * R * Double.BYTES
+				+ (long) demands.size() * (2 * Integer.BYTES + Double.BYTES)
+				+ Long.BYTES;
+		for (ServiceChain sc : chains) {
+			size += Double.BYTES + Integer.BYTES + (long) sc.getNumberOfComponents() * Integer.BYTES;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("[Snapshot] Topology is too big: " + size + " bytes");
+		}
+
+		ByteBuffer b = ByteBuffer.allocate((int) size);
+		b.putInt(MAGIC).putInt(VERSION);
+		b.putInt(N).putInt(S).putInt(L).putInt(C).putInt(R).putInt(chains.size()).putInt(demands.size());
+
+		for (int n = 0; n < N; n++) {
+			b.putDouble(network.getNode(n).getPowerConsumption());
+		}
+
+		for (int l = 0; l < L; l++) {
+			b.putInt(network.getLink(l).getFrom()).putInt(network.getLinkTo(l));
+			b.putDouble(network.getLinkBandwidth(l)).putDouble(network.getLinkPower(l)).putDouble(network.getLinkDelay(l));
+		}
+
+		for (int s = 0; s < S; s++) {
+			Server server = network.getServer(s);
+			if (server == null) {
+				// server that isn't connected to any node, keep layout fixed
+				b.put((byte) 0).putInt(-1).putDouble(0).putDouble(0);
+				for (int r = 0; r < R; r++) {
+					b.putDouble(0);
+				}
+				continue;
+			}
+			b.put((byte) 1).putInt(server.getNode().getIndex());
+			b.putDouble(server.getPmin()).putDouble(server.getPmax());
+			for (int r = 0; r < R; r++) {
+				b.putDouble(server.getResource(r));
+			}
+		}
+
+		for (Component c : components) {
+			for (int r = 0; r < R; r++) {
+				b.putDouble(c.getResource(r));
+			}
+		}
+
+		for (ServiceChain sc : chains) {
+			b.putDouble(sc.getLatency()).putInt(sc.getNumberOfComponents());
+			for (Component c : sc) {
+				b.putInt(c.getIndex());
+			}
+		}
+
+		demands.forEach((c1, c2, bandwidth) -> b.putInt(c1).putInt(c2).putDouble(bandwidth));
+
+		CRC32 crc = new CRC32();
+		crc.update(b.array(), 0, b.position());
+		b.putLong(crc.getValue());
+		b.flip();
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (b.hasRemaining()) {
+				channel.write(b);
+			}
+		}
+	}
+
+	/**
+	 * Load topology from a snapshot file
+	 *
+	 * @param path snapshot file
+	 * @return topology
+	 * @throws IOException on read exception
+	 */
+	public static Topology read(Path path) throws IOException {
+		MappedByteBuffer b;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER + Long.BYTES || channel.size() > Integer.MAX_VALUE) {
+				throw snapshotException("Wrong file size " + channel.size());
+			}
+			b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if (b.getInt() != MAGIC) {
+			throw snapshotException("Not a topology snapshot");
+		}
+		int version = b.getInt();
+		if (version != VERSION) {
+			throw snapshotException("Unsupported version " + version + ", expecting " + VERSION);
+		}
+
+		int end = b.limit() - Long.BYTES;
+		CRC32 crc = new CRC32();
+		crc.update(b.duplicate().position(0).limit(end));
+		if (crc.getValue() != b.getLong(end)) {
+			throw snapshotException("Checksum doesn't match, file is corrupted");
+		}
+		b.limit(end);
+
+		int N = b.getInt();
+		int S = b.getInt();
+		int L = b.getInt();
+		int C = b.getInt();
+		int R = b.getInt();
+		int SC = b.getInt();
+		int D = b.getInt();
+
+		Network network = new Network(N, S);
+		for (int n = 0; n < N; n++) {
+			network.addNode(new Node(n, b.getDouble()));
+		}
+
+		for (int l = 0; l < L; l++) {
+			int from = b.getInt();
+			int to = b.getInt();
+			if (!network.addLink(from, to, b.getDouble(), b.getDouble(), b.getDouble())) {
+				throw snapshotException("Invalid link " + from + " -> " + to);
+			}
+		}
+		network.freeze();
+
+		for (int s = 0; s < S; s++) {
+			boolean present = b.get() != 0;
+			int node = b.getInt();
+			double pmin = b.getDouble();
+			double pmax = b.getDouble();
+			double[] resources = resources(b, R);
+			if (!present) {
+				continue;
+			}
+			if (node < 0 || node >= N || !network.addServer(new Server(s, pmin, pmax, network.getNode(node), resources))) {
+				throw snapshotException("Invalid server " + s);
+			}
+		}
+
+		Component[] components = new Component[C];
+		for (int c = 0; c < C; c++) {
+			components[c] = new Component(c, resources(b, R));
+		}
+
+		List<ServiceChain> chains = new ArrayList<>(SC);
+		for (int i = 0; i < SC; i++) {
+			ServiceChain sc = new ServiceChain(b.getDouble());
+			int count = b.getInt();
+			for (int j = 0; j < count; j++) {
+				sc.addComponent(component(components, b.getInt()));
+			}
+			chains.add(sc);
+		}
+
+		IntIntDoubleMatrix demands = new IntIntDoubleMatrix(D);
+		for (int i = 0; i < D; i++) {
+			int c1 = component(components, b.getInt()).getIndex();
+			int c2 = component(components, b.getInt()).getIndex();
+			demands.put(c1, c2, b.getDouble());
+		}
+
+		if (b.hasRemaining()) {
+			throw snapshotException(b.remaining() + " bytes left after topology");
+		}
+
+		return new Topology(network, components, demands, chains);
+	}
+
+	private static double[] resources(ByteBuffer b, int R) {
+		double[] resources = new double[R];
+		for (int r = 0; r < R; r++) {
+			resources[r] = b.getDouble();
+		}
+		return resources;
+	}
+
+	private static Component component(Component[] components, int index) {
+		if (index < 0 || index >= components.length) {
+			throw snapshotException("Component index out of bounds: " + index);
+		}
+		return components[index];
+	}
+
+	private static IllegalArgumentException snapshotException(String msg) {
+		return new IllegalArgumentException("[Snapshot] " + msg);
+	}
+}
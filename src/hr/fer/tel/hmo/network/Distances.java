@@ -0,0 +1,185 @@
+package hr.fer.tel.hmo.network;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Minimal delay between nodes, used to prune routes that can't satisfy their latency.
+ * <p>
+ * Delays to a node are computed with one Dijkstra over reversed links the first time that node
+ * is asked for as an end, and are read only afterwards. Routes only end in nodes of servers,
+ * so memory grows with number of server nodes times number of nodes, not with number of nodes squared.
+ * Rows are published with compare and set, so searches can share one instance.
+ * <p>
+ * Delays are stored as floats rounded down, so they are still lower bounds
+ * and can be used to safely prune routes that can't satisfy their limits.
+ */
+public class Distances {
+
+	private final Network network;
+
+	private final int N;
+
+	/**
+	 * Incoming links of node n are inLink[inStart[n]] ... inLink[inStart[n + 1] - 1]
+	 */
+	private final int[] inStart;
+	private final int[] inLink;
+
+	/**
+	 * linkFrom[link id] = node link starts in
+	 */
+	private final int[] linkFrom;
+
+	/**
+	 * rows[to][from] = minimal delay of any route from -> to, null until it is needed
+	 */
+	private final AtomicReferenceArray<float[]> rows;
+
+	Distances(Network network) {
+		this.network = network;
+		N = network.getNumberOfNodes();
+
+		int L = network.getNumberOfLinks();
+		linkFrom = new int[L];
+		inStart = new int[N + 1];
+		for (int n = 0; n < N; n++) {
+			for (int k = network.getOutStart(n), e = network.getOutEnd(n); k < e; k++) {
+				int l = network.getOutLink(k);
+				linkFrom[l] = n;
+				inStart[network.getLinkTo(l) + 1]++;
+			}
+		}
+		for (int n = 0; n < N; n++) {
+			inStart[n + 1] += inStart[n];
+		}
+		inLink = new int[L];
+		int[] next = Arrays.copyOf(inStart, N);
+		for (int l = 0; l < L; l++) {
+			inLink[next[network.getLinkTo(l)]++] = l;
+		}
+
+		rows = new AtomicReferenceArray<>(N);
+	}
+
+	/**
+	 * @param from start node
+	 * @param to   end node
+	 * @return minimal delay from -> to, infinity if not reachable
+	 */
+	public double minDelay(int from, int to) {
+		float[] row = rows.get(to);
+		if (row == null) {
+			row = row(to);
+		}
+		return row[from];
+	}
+
+	/**
+	 * Compute delays to a node, if two threads do it at the same time both get the same row
+	 *
+	 * @param to end node
+	 * @return row of given node
+	 */
+	private float[] row(int to) {
+		double[] dist = dijkstra(to);
+		float[] row = new float[N];
+		for (int from = 0; from < N; from++) {
+			row[from] = down(dist[from]);
+		}
+		return rows.compareAndSet(to, null, row) ? row : rows.get(to);
+	}
+
+	/**
+	 * Dijkstra from end node over reversed links using link delay as cost
+	 *
+	 * @param to end node
+	 * @return dist[from] = minimal delay from -> to
+	 */
+	private double[] dijkstra(int to) {
+		double[] dist = new double[N];
+		int[] heap = new int[N];
+		int[] position = new int[N];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		Arrays.fill(position, -1);
+
+		dist[to] = 0.0;
+		int size = 0;
+		heap[size] = to;
+		position[to] = size++;
+
+		while (size > 0) {
+			int n = heap[0];
+			position[n] = -2; // settled
+			heap[0] = heap[--size];
+			if (size > 0) {
+				position[heap[0]] = 0;
+				siftDown(heap, position, dist, size, 0);
+			}
+
+			for (int k = inStart[n], e = inStart[n + 1]; k < e; k++) {
+				int l = inLink[k];
+				int m = linkFrom[l];
+				if (position[m] == -2) {
+					continue;
+				}
+				double d = dist[n] + network.getLinkDelay(l);
+				if (d >= dist[m]) {
+					continue;
+				}
+				dist[m] = d;
+				if (position[m] < 0) {
+					heap[size] = m;
+					position[m] = size++;
+				}
+				siftUp(heap, position, dist, position[m]);
+			}
+		}
+		return dist;
+	}
+
+	private static void siftUp(int[] heap, int[] position, double[] dist, int i) {
+		int n = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (dist[heap[parent]] <= dist[n]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = n;
+		position[n] = i;
+	}
+
+	private static void siftDown(int[] heap, int[] position, double[] dist, int size, int i) {
+		int n = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && dist[heap[child + 1]] < dist[heap[child]]) {
+				child++;
+			}
+			if (dist[n] <= dist[heap[child]]) {
+				break;
+			}
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = n;
+		position[n] = i;
+	}
+
+	/**
+	 * @param d double
+	 * @return largest float that isn't greater than d
+	 */
+	private static float down(double d) {
+		float f = (float) d;
+		return f > d ? Math.nextDown(f) : f;
+	}
+}
@@ -5,6 +5,15 @@ package hr.fer.tel.hmo.network;
  */
 public class Link {
 
+	/**
+	 * Link's id, links are numbered from 0 in order in which they are added to network
+	 */
+	private final int index;
+
+	private final int from;
+
+	private final int to;
+
 	private final double bandwidth;
 
 	private final double powerConsumption;
@@ -14,16 +23,34 @@ public class Link {
 	/**
 	 * Create a new link with given parameters
 	 *
+	 * @param index            link's id
+	 * @param from             index of node where the link starts
+	 * @param to               index of node where the link ends
 	 * @param bandwidth        link's bandwidth
 	 * @param powerConsumption link's power consumption
 	 * @param delay            link's delay
 	 */
-	public Link(double bandwidth, double powerConsumption, double delay) {
+	public Link(int index, int from, int to, double bandwidth, double powerConsumption, double delay) {
+		this.index = index;
+		this.from = from;
+		this.to = to;
 		this.bandwidth = bandwidth;
 		this.powerConsumption = powerConsumption;
 		this.delay = delay;
 	}
 
+	public int getIndex() {
+		return index;
+	}
+
+	public int getFrom() {
+		return from;
+	}
+
+	public int getTo() {
+		return to;
+	}
+
 	public double getBandwidth() {
 		return bandwidth;
 	}
@@ -47,23 +74,12 @@ public class Link {
 
 		Link link = (Link) o;
 
-		if (Double.compare(link.bandwidth, bandwidth) != 0) {
-			return false;
-		}
-		return Double.compare(link.powerConsumption, powerConsumption) == 0 && Double.compare(link.delay, delay) == 0;
+		return index == link.index;
 	}
 
 	@Override
 	public int hashCode() {
-		int result;
-		long temp;
-		temp = Double.doubleToLongBits(bandwidth);
-		result = (int) (temp ^ (temp >>> 32));
-		temp = Double.doubleToLongBits(powerConsumption);
-		result = 31 * result + (int) (temp ^ (temp >>> 32));
-		temp = Double.doubleToLongBits(delay);
-		result = 31 * result + (int) (temp ^ (temp >>> 32));
-		return result;
+		return index;
 	}
 
 }
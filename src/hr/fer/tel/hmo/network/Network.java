@@ -1,7 +1,9 @@
 package hr.fer.tel.hmo.network;
 
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.IntIntIntMatrix;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 
 /**
@@ -20,9 +22,47 @@ public class Network {
 	private final Server[] servers;
 
 	/**
-	 * links[from][to] = link
+	 * links[id] = link, links are only added until network is frozen
 	 */
-	private final Matrix<Integer, Integer, Link> links;
+	private final List<Link> links;
+
+	/**
+	 * (from, to) -> link id
+	 */
+	private final IntIntIntMatrix linkIds;
+
+	// ==============================================================================
+	// compressed sparse row adjacency, created when network is frozen
+
+	/**
+	 * Links going out of node n are outLinks[outStart[n]] ... outLinks[outStart[n + 1] - 1]
+	 */
+	private int[] outStart;
+
+	/**
+	 * Ids of outgoing links, grouped by starting node
+	 */
+	private int[] outLinks;
+
+	/**
+	 * linkTo[id] = index of node where link ends
+	 */
+	private int[] linkTo;
+
+	/**
+	 * linkBandwidth[id] = bandwidth of link
+	 */
+	private double[] linkBandwidth;
+
+	/**
+	 * linkPower[id] = power consumption of link
+	 */
+	private double[] linkPower;
+
+	/**
+	 * linkDelay[id] = delay of link
+	 */
+	private double[] linkDelay;
 
 	/**
 	 * Create a new network with desired number of nodes and servers.
@@ -34,7 +74,57 @@ public class Network {
 	public Network(int numberOfNodes, int numberOfServers) {
 		nodes = new Node[numberOfNodes];
 		servers = new Server[numberOfServers];
-		links = new Matrix<>();
+		links = new ArrayList<>();
+		linkIds = new IntIntIntMatrix(numberOfNodes * 4);
+	}
+
+	/**
+	 * Freeze links and build adjacency arrays, no links can be added after this
+	 */
+	public void freeze() {
+		if (isFrozen()) {
+			return;
+		}
+
+		int N = nodes.length;
+		int L = links.size();
+
+		int[] start = new int[N + 1];
+		for (Link l : links) {
+			start[l.getFrom() + 1]++;
+		}
+		for (int n = 0; n < N; n++) {
+			start[n + 1] += start[n];
+		}
+
+		int[] fill = new int[N];
+		int[] out = new int[L];
+		int[] to = new int[L];
+		double[] bandwidth = new double[L];
+		double[] power = new double[L];
+		double[] delay = new double[L];
+		for (Link l : links) {
+			int id = l.getIndex();
+			out[start[l.getFrom()] + fill[l.getFrom()]++] = id;
+			to[id] = l.getTo();
+			bandwidth[id] = l.getBandwidth();
+			power[id] = l.getPowerConsumption();
+			delay[id] = l.getDelay();
+		}
+
+		outLinks = out;
+		linkTo = to;
+		linkBandwidth = bandwidth;
+		linkPower = power;
+		linkDelay = delay;
+		outStart = start;
+	}
+
+	/**
+	 * @return true if network is frozen
+	 */
+	public boolean isFrozen() {
+		return outStart != null;
 	}
 
 	/**
@@ -80,18 +170,37 @@ public class Network {
 	/**
 	 * Add a new link between two nodes. Links are considered as unidirectional
 	 *
-	 * @param n1   first node index
-	 * @param n2   second node index
-	 * @param link link between two nodes
+	 * @param n1               first node index
+	 * @param n2               second node index
+	 * @param bandwidth        link's bandwidth
+	 * @param powerConsumption link's power consumption
+	 * @param delay            link's delay
 	 * @return true if link was successfully added
 	 */
-	public boolean addLink(int n1, int n2, Link link) {
+	public boolean addLink(int n1, int n2, double bandwidth, double powerConsumption, double delay) {
+		if (isFrozen()) {
+			return false;
+		}
 		if (n1 < 0 || n1 >= nodes.length || n2 < 0 || n2 >= nodes.length) {
 			return false;
 		}
+		if (nodes[n1] == null || nodes[n2] == null) {
+			return false;
+		}
 
-		return !(nodes[n1] == null || nodes[n2] == null) && links.put(n1, n2, link) == null;
+		int id = links.size();
+		if (!linkIds.putIfAbsent(n1, n2, id)) {
+			return false;
+		}
+		links.add(new Link(id, n1, n2, bandwidth, powerConsumption, delay));
+		return true;
+	}
 
+	/**
+	 * @return number of links
+	 */
+	public int getNumberOfLinks() {
+		return links.size();
 	}
 
 	/**
@@ -102,16 +211,83 @@ public class Network {
 	 * @return link between two nodes or null if such doesn't exist
 	 */
 	public Link getLink(int from, int to) {
-		return links.get(from, to);
+		int id = linkIds.get(from, to, -1);
+		return id < 0 ? null : links.get(id);
+	}
+
+	/**
+	 * @param id link's id
+	 * @return link with given id
+	 */
+	public Link getLink(int id) {
+		return links.get(id);
 	}
 
 	/**
-	 * Returns all links. Indexes are node indexes
+	 * Get id of link between two nodes
 	 *
-	 * @return matrix of links
+	 * @param from index of first node
+	 * @param to   index of second node
+	 * @return link's id or -1 if such doesn't exist
+	 */
+	public int getLinkId(int from, int to) {
+		return linkIds.get(from, to, -1);
+	}
+
+	/**
+	 * @param node node index
+	 * @return position in {@link #getOutLink(int)} where node's outgoing links start
+	 */
+	public int getOutStart(int node) {
+		return outStart[node];
+	}
+
+	/**
+	 * @param node node index
+	 * @return position in {@link #getOutLink(int)} after node's last outgoing link
+	 */
+	public int getOutEnd(int node) {
+		return outStart[node + 1];
+	}
+
+	/**
+	 * @param position position between getOutStart(n) and getOutEnd(n)
+	 * @return id of outgoing link
+	 */
+	public int getOutLink(int position) {
+		return outLinks[position];
+	}
+
+	/**
+	 * @param id link's id
+	 * @return index of node where link ends
+	 */
+	public int getLinkTo(int id) {
+		return linkTo[id];
+	}
+
+	/**
+	 * @param id link's id
+	 * @return link's bandwidth
+	 */
+	public double getLinkBandwidth(int id) {
+		return linkBandwidth[id];
+	}
+
+	/**
+	 * @param id link's id
+	 * @return link's power consumption
+	 */
+	public double getLinkPower(int id) {
+		return linkPower[id];
+	}
+
+	/**
+	 * @param id link's id
+	 * @return link's delay
 	 */
-	public Matrix<Integer, Integer, Link> getLinks() {
-		return links;
+	public double getLinkDelay(int id) {
+		return linkDelay[id];
 	}
 
 	/**
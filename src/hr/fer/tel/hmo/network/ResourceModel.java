@@ -0,0 +1,160 @@
+package hr.fer.tel.hmo.network;
+
+import hr.fer.tel.hmo.util.Util;
+import hr.fer.tel.hmo.vnf.Component;
+
+/**
+ * Server capacities and component demands for any number of resources, stored as flat arrays.
+ * <p>
+ * Values of one server (or component) are next to each other: capacity[s * R + r], demand[c * R + r].
+ * Usage of servers is kept by callers in arrays created with {@link #newUsage()},
+ * so checking if a component fits on a server is R array reads and no boxing.
+ */
+public class ResourceModel {
+
+	/**
+	 * Number of resources
+	 */
+	private final int R;
+
+	/**
+	 * capacity[s * R + r] = available amount of resource r on server s, 0 for servers that don't exist
+	 */
+	private final double[] capacity;
+
+	/**
+	 * demand[c * R + r] = needed amount of resource r for component c
+	 */
+	private final double[] demand;
+
+	/**
+	 * powerRange[s] = pmax - pmin, power grows with used processor
+	 */
+	private final double[] powerRange;
+
+	ResourceModel(Network network, Component[] components) {
+		int S = network.getNumberOfServers();
+		int C = components.length;
+		int R = 0;
+		for (Component c : components) {
+			R = Math.max(R, c.getNumberOfResources());
+		}
+		this.R = R;
+
+		capacity = new double[S * R];
+		powerRange = new double[S];
+		for (int s = 0; s < S; s++) {
+			Server server = network.getServer(s);
+			if (server == null) {
+				continue;
+			}
+			if (server.getNumberOfResources() != R) {
+				throw new IllegalArgumentException("Server " + s + " doesn't have " + R + " resources");
+			}
+			for (int r = 0; r < R; r++) {
+				capacity[s * R + r] = server.getResource(r);
+			}
+			powerRange[s] = server.getPmax() - server.getPmin();
+		}
+
+		demand = new double[C * R];
+		for (int c = 0; c < C; c++) {
+			if (components[c].getNumberOfResources() != R) {
+				throw new IllegalArgumentException("Component " + c + " doesn't need " + R + " resources");
+			}
+			for (int r = 0; r < R; r++) {
+				demand[c * R + r] = components[c].getResource(r);
+			}
+		}
+	}
+
+	/**
+	 * @return number of resources
+	 */
+	public int getNumberOfResources() {
+		return R;
+	}
+
+	/**
+	 * @param s server
+	 * @param r resource
+	 * @return available amount of resource on server
+	 */
+	public double capacity(int s, int r) {
+		return capacity[s * R + r];
+	}
+
+	/**
+	 * @param c component
+	 * @param r resource
+	 * @return needed amount of resource for component
+	 */
+	public double demand(int c, int r) {
+		return demand[c * R + r];
+	}
+
+	/**
+	 * @return usage of all servers where nothing is used, usage[s * R + r]
+	 */
+	public double[] newUsage() {
+		return new double[capacity.length];
+	}
+
+	/**
+	 * @param used usage of servers
+	 * @param s    server
+	 * @param c    component
+	 * @return true if component fits on server with given usage
+	 */
+	public boolean fits(double[] used, int s, int c) {
+		int so = s * R;
+		int co = c * R;
+		for (int r = 0; r < R; r++) {
+			if (used[so + r] + demand[co + r] > capacity[so + r] + Util.EPS) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Put component on server
+	 *
+	 * @param used usage of servers
+	 * @param s    server
+	 * @param c    component
+	 */
+	public void add(double[] used, int s, int c) {
+		int so = s * R;
+		int co = c * R;
+		for (int r = 0; r < R; r++) {
+			used[so + r] += demand[co + r];
+		}
+	}
+
+	/**
+	 * Take component from server
+	 *
+	 * @param used usage of servers
+	 * @param s    server
+	 * @param c    component
+	 */
+	public void remove(double[] used, int s, int c) {
+		int so = s * R;
+		int co = c * R;
+		for (int r = 0; r < R; r++) {
+			used[so + r] -= demand[co + r];
+		}
+	}
+
+	/**
+	 * Same as {@link Server#getAdditionalPower(Component)}
+	 *
+	 * @param s server
+	 * @param c component
+	 * @return additional power of server when component is placed on it
+	 */
+	public double additionalPower(int s, int c) {
+		return powerRange[s] * (demand[c * R] / capacity[s * R]);
+	}
+}
@@ -2,8 +2,6 @@ package hr.fer.tel.hmo.network;
 
 import hr.fer.tel.hmo.vnf.Component;
 
-import java.util.List;
-
 /**
  * Represents a server that is connected to network
  */
@@ -30,14 +28,9 @@ public class Server {
 	private final Node node;
 
 	/**
-	 * Available resources
-	 */
-	private final List<Double> resources;
-
-	/**
-	 * Available processor resource
+	 * Available resources, first one is processor
 	 */
-	private final double processorResource;
+	private final double[] resources;
 
 	/**
 	 * Create a new server
@@ -48,13 +41,15 @@ public class Server {
 	 * @param node      node that it's connected to
 	 * @param resources available resources
 	 */
-	public Server(int index, double pmin, double pmax, Node node, List<Double> resources) {
+	public Server(int index, double pmin, double pmax, Node node, double[] resources) {
+		if (resources.length == 0) {
+			throw new IllegalArgumentException("Server needs at least one resource");
+		}
 		this.index = index;
 		this.pmin = pmin;
 		this.pmax = pmax;
 		this.node = node;
-		this.resources = resources;
-		this.processorResource = resources.get(0);
+		this.resources = resources.clone();
 	}
 
 	/**
@@ -65,7 +60,7 @@ public class Server {
 	 */
 	public double getAdditionalPower(Component component) {
 		// only calculate how much is processor used
-		double usage = component.getResources().get(0) / processorResource;
+		double usage = component.getResource(0) / resources[0];
 
 		return (pmax - pmin) * usage;
 	}
@@ -86,7 +81,15 @@ public class Server {
 		return node;
 	}
 
-	public List<Double> getResources() {
-		return resources;
+	public int getNumberOfResources() {
+		return resources.length;
+	}
+
+	/**
+	 * @param r resource's index
+	 * @return available amount of resource
+	 */
+	public double getResource(int r) {
+		return resources[r];
 	}
 }
@@ -1,6 +1,6 @@
 package hr.fer.tel.hmo.network;
 
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.IntIntDoubleMatrix;
 import hr.fer.tel.hmo.vnf.Component;
 import hr.fer.tel.hmo.vnf.ServiceChain;
 
@@ -29,14 +29,27 @@ public class Topology {
 	/**
 	 * List of demanded bandwidth from one component to another.
 	 */
-	private final Matrix<Integer, Integer, Double> demands;
+	private final IntIntDoubleMatrix demands;
 
-	public Topology(Network network, Component[] components, Matrix<Integer, Integer, Double> demands,
+	/**
+	 * Minimal delay between nodes, computed for one end node at a time when it is needed
+	 */
+	private final Distances distances;
+
+	/**
+	 * Server capacities and component demands as flat arrays
+	 */
+	private final ResourceModel resources;
+
+	public Topology(Network network, Component[] components, IntIntDoubleMatrix demands,
 	                List<ServiceChain> serviceChains) {
+		network.freeze();
 		this.network = network;
 		this.components = components;
 		this.serviceChains = serviceChains;
 		this.demands = demands;
+		this.distances = new Distances(network);
+		this.resources = new ResourceModel(network, components);
 	}
 
 	public Network getNetwork() {
@@ -51,7 +64,15 @@ public class Topology {
 		return serviceChains;
 	}
 
-	public Matrix<Integer, Integer, Double> getDemands() {
+	public IntIntDoubleMatrix getDemands() {
 		return demands;
 	}
+
+	public Distances getDistances() {
+		return distances;
+	}
+
+	public ResourceModel getResources() {
+		return resources;
+	}
 }
@@ -0,0 +1,143 @@
+package hr.fer.tel.hmo.solution;
+
+import hr.fer.tel.hmo.network.ResourceModel;
+import hr.fer.tel.hmo.network.Topology;
+import hr.fer.tel.hmo.solution.placement.Placement;
+
+import java.util.Arrays;
+
+/**
+ * Stateful capacity check that is bound to one placement and keeps used resources of every server.
+ * <p>
+ * Moving a component costs O(number of resources), so other placements are checked
+ * by applying only components that moved and undoing them afterwards, nothing is copied.
+ * When caller knows which components can be on other servers (e.g. {@link Placement#getShuffled()}),
+ * only those are compared, otherwise all components are.
+ * Not thread safe, every search should have its own.
+ */
+public class CapacityLedger {
+
+	private final ResourceModel resources;
+
+	/**
+	 * placement[c] = server of component c in bound placement
+	 */
+	private final int[] placement;
+
+	/**
+	 * used[s * R + r] = used amount of resource r on server s
+	 */
+	private final double[] used;
+
+	/**
+	 * Components that moved in placement that is checked
+	 */
+	private final int[] moved;
+
+	/**
+	 * Placement this ledger is bound to, null before {@link #reset(Placement)}
+	 */
+	private Placement current;
+
+	public CapacityLedger(Topology topology) {
+		resources = topology.getResources();
+		placement = new int[topology.getComponents().length];
+		used = resources.newUsage();
+		moved = new int[placement.length];
+	}
+
+	/**
+	 * Bind this ledger to given placement, everything is calculated from scratch
+	 *
+	 * @param p placement
+	 * @return true if placement fits on servers
+	 */
+	public boolean reset(Placement p) {
+		Arrays.fill(used, 0.0);
+		boolean valid = true;
+		for (int c = 0; c < placement.length; c++) {
+			int s = p.getPlacementFor(c);
+			valid &= resources.fits(used, s, c);
+			resources.add(used, s, c);
+			placement[c] = s;
+		}
+		current = p;
+		return valid;
+	}
+
+	/**
+	 * @return placement this ledger is bound to, null if it isn't bound yet
+	 */
+	public Placement getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Check other placement by its difference from bound one, which should be valid.
+	 * State is unchanged after the call.
+	 *
+	 * @param p          other placement
+	 * @param components components that can be on other servers than in bound placement, null for all
+	 * @return true if other placement fits on servers
+	 */
+	public boolean isValid(Placement p, int[] components) {
+		checkBound();
+		if (p == current) {
+			return true;
+		}
+		// take moved components off first, so order of adding doesn't matter
+		int n = 0;
+		for (int i = 0, e = components == null ? placement.length : components.length; i < e; i++) {
+			int c = components == null ? i : components[i];
+			if (p.getPlacementFor(c) != placement[c]) {
+				resources.remove(used, placement[c], c);
+				moved[n++] = c;
+			}
+		}
+
+		int added = 0;
+		for (; added < n; added++) {
+			int c = moved[added];
+			int s = p.getPlacementFor(c);
+			if (!resources.fits(used, s, c)) {
+				break;
+			}
+			resources.add(used, s, c);
+		}
+
+		for (int i = 0; i < n; i++) {
+			int c = moved[i];
+			if (i < added) {
+				resources.remove(used, p.getPlacementFor(c), c);
+			}
+			resources.add(used, placement[c], c);
+		}
+		return added == n;
+	}
+
+	/**
+	 * Bind this ledger to other placement by applying only the difference
+	 *
+	 * @param p          other placement
+	 * @param components components that can be on other servers than in bound placement, null for all
+	 */
+	public void moveTo(Placement p, int[] components) {
+		checkBound();
+		for (int i = 0, e = components == null ? placement.length : components.length; i < e; i++) {
+			int c = components == null ? i : components[i];
+			int s = p.getPlacementFor(c);
+			if (s != placement[c]) {
+				resources.remove(used, placement[c], c);
+				resources.add(used, s, c);
+				placement[c] = s;
+			}
+		}
+		current = p;
+	}
+
+	private void checkBound() {
+		if (current == null) {
+			throw new IllegalStateException("Ledger isn't bound to a placement, call reset first");
+		}
+	}
+}
@@ -1,10 +1,12 @@
 package hr.fer.tel.hmo.solution;
 
-import hr.fer.tel.hmo.network.Link;
+import hr.fer.tel.hmo.network.Distances;
+import hr.fer.tel.hmo.network.Network;
+import hr.fer.tel.hmo.network.ResourceModel;
 import hr.fer.tel.hmo.network.Topology;
 import hr.fer.tel.hmo.solution.placement.Placement;
 import hr.fer.tel.hmo.solution.routing.Route;
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
 import hr.fer.tel.hmo.util.Util;
 import hr.fer.tel.hmo.vnf.Component;
 import hr.fer.tel.hmo.vnf.ServiceChain;
@@ -26,6 +28,10 @@ public class Evaluator {
 		this.topology = topology;
 	}
 
+	public Topology getTopology() {
+		return topology;
+	}
+
 	/**
 	 * @param solution solution
 	 * @return fitness
@@ -55,7 +61,12 @@ public class Evaluator {
 		Function<Integer, Integer> compToNode =
 				c -> topology.getNetwork().getServer(p.getPlacementFor(c)).getNode().getIndex();
 
-		for (Route r : solution.getRoutes().values()) {
+		IntIntObjMatrix<Route> routes = solution.getRoutes();
+		for (int slot = 0; slot < routes.slots(); slot++) {
+			Route r = routes.valueAt(slot);
+			if (r == null) {
+				continue;
+			}
 			int[] nodes = r.getNodes();
 
 			if (nodes[0] != compToNode.apply(r.getFrom())) {
@@ -67,7 +78,7 @@ public class Evaluator {
 			}
 
 			for (int i = 1; i < nodes.length; i++) {
-				if (topology.getNetwork().getLink(nodes[i - 1], nodes[i]) == null) {
+				if (topology.getNetwork().getLinkId(nodes[i - 1], nodes[i]) < 0) {
 					throw new RuntimeException("Nodes arent connected");
 				}
 			}
@@ -86,13 +97,14 @@ public class Evaluator {
 	 */
 	private double evaluate(Solution solution) {
 		Placement placement = solution.getPlacement();
-		Matrix<Integer, Integer, Route> routes = solution.getRoutes();
+		IntIntObjMatrix<Route> routes = solution.getRoutes();
+		Network network = topology.getNetwork();
 
 		double sol = 0.0;
 
-		BitSet usedNodes = new BitSet(topology.getNetwork().getNumberOfNodes());
-		BitSet usedServers = new BitSet(topology.getNetwork().getNumberOfServers());
-		Set<Link> usedLinks = new HashSet<>();
+		BitSet usedNodes = new BitSet(network.getNumberOfNodes());
+		BitSet usedServers = new BitSet(network.getNumberOfServers());
+		BitSet usedLinks = new BitSet(network.getNumberOfLinks());
 
 		for (Component c : topology.getComponents()) {
 			int serverIndex = placement.getPlacementFor(c);
@@ -101,31 +113,33 @@ public class Evaluator {
 			sol += topology.getNetwork().getServer(serverIndex).getAdditionalPower(c);
 		}
 
-		for (Integer from : routes.keys()) {
-			for (Route r : routes.valuesFor(from)) {
-				int[] nodes = r.getNodes();
-				if (nodes.length == 1) {
-					continue; // both topology.getComponents() on same node
-				}
+		for (int slot = 0; slot < routes.slots(); slot++) {
+			Route r = routes.valueAt(slot);
+			if (r == null) {
+				continue;
+			}
+			int[] nodes = r.getNodes();
+			if (nodes.length == 1) {
+				continue; // both topology.getComponents() on same node
+			}
 
-				// mark nodes as used
-				// add used link powers
-				usedNodes.set(nodes[0]);
-				for (int i = 1; i < nodes.length; i++) {
-					usedLinks.add(topology.getNetwork().getLink(nodes[i - 1], nodes[i]));
-					usedNodes.set(nodes[i]);
-				}
+			// mark nodes as used
+			// add used link powers
+			usedNodes.set(nodes[0]);
+			for (int i = 1; i < nodes.length; i++) {
+				usedLinks.set(network.getLinkId(nodes[i - 1], nodes[i]));
+				usedNodes.set(nodes[i]);
 			}
 		}
 
 		// power used by links
-		sol += usedLinks.parallelStream().mapToDouble(Link::getPowerConsumption).sum();
+		sol += usedLinks.stream().mapToDouble(network::getLinkPower).sum();
 
 		// minimal power used by server (only count those which are on)
-		sol += usedServers.stream().parallel().mapToDouble(i -> topology.getNetwork().getServer(i).getPmin()).sum();
+		sol += usedServers.stream().mapToDouble(i -> network.getServer(i).getPmin()).sum();
 
 		// power used by nodes (only count those which are used)
-		sol += usedNodes.stream().parallel().mapToDouble(i -> topology.getNetwork().getNode(i).getPowerConsumption()).sum();
+		sol += usedNodes.stream().mapToDouble(i -> network.getNode(i).getPowerConsumption()).sum();
 
 		return sol;
 	}
@@ -137,27 +151,151 @@ public class Evaluator {
 	 * @return true if placement is valid
 	 */
 	public boolean isValid(Placement placement) {
-		List<List<Double>> res = new ArrayList<>();
-		int S = topology.getNetwork().getNumberOfServers();
-		for (int s = 0; s < S; s++) {
-			res.add(new ArrayList<>(topology.getNetwork().getServer(s).getResources()));
-		}
+		ResourceModel resources = topology.getResources();
+		double[] used = resources.newUsage();
 
-		for (Component c : topology.getComponents()) {
+		int C = topology.getComponents().length;
+		for (int c = 0; c < C; c++) {
 			int s = placement.getPlacementFor(c);
-			List<Double> serverAvailable = res.get(s);
-			int R = serverAvailable.size();
-			for (int r = 0; r < R; r++) {
-				double left = serverAvailable.get(r) - c.getResources().get(r);
-				if (left < 0 && left < -Util.EPS) {
+			if (!resources.fits(used, s, c)) {
+				return false;
+			}
+			resources.add(used, s, c);
+		}
+		return true;
+	}
+
+	/**
+	 * Check if placement can satisfy latency of all service chains.
+	 * Uses minimal delays between nodes so it is a necessary condition, routing can still fail.
+	 *
+	 * @param placement placement of components onto servers
+	 * @return false if some service chain can't satisfy its latency with any routing
+	 */
+	public boolean isLatencyFeasible(Placement placement) {
+		Network network = topology.getNetwork();
+		Distances distances = topology.getDistances();
+
+		for (ServiceChain sc : topology.getServiceChains()) {
+			int ncs = sc.getNumberOfComponents();
+			if (ncs <= 1) {
+				continue;
+			}
+
+			double delay = 0.0;
+			int prev = network.getServer(placement.getPlacementFor(sc.getComponent(0))).getNode().getIndex();
+			for (int i = 1; i < ncs; i++) {
+				int curr = network.getServer(placement.getPlacementFor(sc.getComponent(i))).getNode().getIndex();
+				delay += distances.minDelay(prev, curr);
+				if (delay > sc.getLatency()) {
 					return false;
 				}
-				serverAvailable.set(r, left);
+				prev = curr;
 			}
 		}
 		return true;
 	}
 
+	/**
+	 * Measure how much a solution breaks constraints, used in penalty mode.
+	 * Every violation is relative to its limit, so they can be added up.
+	 *
+	 * @param solution solution, every communicating pair has to have a route
+	 * @return violations indexed by {@link Penalties.Violation#ordinal()}, all 0 if solution is valid
+	 */
+	public double[] violations(Solution solution) {
+		double[] violations = new double[Penalties.Violation.values().length];
+		violations[Penalties.Violation.RESOURCES.ordinal()] = resourceExcess(solution.getPlacement());
+		violations[Penalties.Violation.BANDWIDTH.ordinal()] = bandwidthExcess(solution);
+		violations[Penalties.Violation.LATENCY.ordinal()] = latencyExcess(solution);
+		return violations;
+	}
+
+	/**
+	 * @param placement placement of components onto servers
+	 * @return sum of relative overuse of every resource of every server
+	 */
+	private double resourceExcess(Placement placement) {
+		ResourceModel resources = topology.getResources();
+		double[] used = resources.newUsage();
+
+		int C = topology.getComponents().length;
+		for (int c = 0; c < C; c++) {
+			resources.add(used, placement.getPlacementFor(c), c);
+		}
+
+		int R = resources.getNumberOfResources();
+		double excess = 0.0;
+		for (int i = 0; i < used.length; i++) {
+			double capacity = resources.capacity(i / R, i % R);
+			if (used[i] > capacity + Util.EPS) {
+				excess += (used[i] - capacity) / Math.max(capacity, Util.EPS);
+			}
+		}
+		return excess;
+	}
+
+	/**
+	 * @param solution solution
+	 * @return sum of relative overload of every link
+	 */
+	private double bandwidthExcess(Solution solution) {
+		IntIntObjMatrix<Route> routes = solution.getRoutes();
+		Network network = topology.getNetwork();
+
+		// used[link id] = bandwidth taken on link
+		double[] used = new double[network.getNumberOfLinks()];
+		for (int slot = 0; slot < routes.slots(); slot++) {
+			Route r = routes.valueAt(slot);
+			if (r == null) {
+				continue;
+			}
+			int[] nodes = r.getNodes();
+			double demand = topology.getDemands().get(r.getFrom(), r.getTo(), 0.0);
+			for (int j = 1; j < nodes.length; j++) {
+				used[network.getLinkId(nodes[j - 1], nodes[j])] += demand;
+			}
+		}
+
+		double excess = 0.0;
+		for (int l = 0; l < used.length; l++) {
+			double bandwidth = network.getLinkBandwidth(l);
+			if (used[l] > bandwidth + Util.EPS) {
+				excess += (used[l] - bandwidth) / Math.max(bandwidth, Util.EPS);
+			}
+		}
+		return excess;
+	}
+
+	/**
+	 * @param solution solution
+	 * @return sum of relative latency excess of every service chain
+	 */
+	private double latencyExcess(Solution solution) {
+		IntIntObjMatrix<Route> routes = solution.getRoutes();
+		Network network = topology.getNetwork();
+
+		double excess = 0.0;
+		for (ServiceChain sc : topology.getServiceChains()) {
+			double delay = 0.0;
+			int prevCompIdx = sc.getComponent(0).getIndex();
+			for (int i = 1; i < sc.getNumberOfComponents(); i++) {
+				int currCompIdx = sc.getComponent(i).getIndex();
+				int[] nodes = routes.get(prevCompIdx, currCompIdx).getNodes();
+				for (int j = 1; j < nodes.length; j++) {
+					delay += network.getLinkDelay(network.getLinkId(nodes[j - 1], nodes[j]));
+				}
+				prevCompIdx = currCompIdx;
+			}
+
+			double latency = sc.getLatency();
+			if (delay > latency + Util.EPS) {
+				excess += (delay - latency) / Math.max(latency, Util.EPS);
+			}
+		}
+		return excess;
+	}
+
 	/**
 	 * Check if all service chains have allowed latency
 	 *
@@ -177,7 +315,8 @@ public class Evaluator {
 	 * @return whether latency is below maximal allowed
 	 */
 	private boolean isLatencyValidForServiceChain(Solution solution, ServiceChain sc) {
-		Matrix<Integer, Integer, Route> routes = solution.getRoutes();
+		IntIntObjMatrix<Route> routes = solution.getRoutes();
+		Network network = topology.getNetwork();
 
 		double delay = 0.0;
 		double latency = sc.getLatency();
@@ -195,7 +334,7 @@ public class Evaluator {
 
 			int[] nodes = r.getNodes();
 			for (int j = 1; j < nodes.length; j++) {
-				delay += topology.getNetwork().getLink(nodes[j - 1], nodes[j]).getDelay();
+				delay += network.getLinkDelay(network.getLinkId(nodes[j - 1], nodes[j]));
 			}
 
 			if (delay > latency) {
@@ -216,49 +355,31 @@ public class Evaluator {
 	 */
 	private boolean isBandwidthValid(Solution solution) {
 
-		Matrix<Integer, Integer, Route> routes = solution.getRoutes();
-		Matrix<Integer, Integer, Double> bandwidths = new Matrix<>();
-		Matrix<Integer, Integer, Boolean> cmps = new Matrix<>();
+		IntIntObjMatrix<Route> routes = solution.getRoutes();
+		Network network = topology.getNetwork();
 
-		for (ServiceChain sc : topology.getServiceChains()) {
+		// bandwidths[link id] = bandwidth left on link
+		double[] bandwidths = new double[network.getNumberOfLinks()];
+		for (int l = 0; l < bandwidths.length; l++) {
+			bandwidths[l] = network.getLinkBandwidth(l);
+		}
 
-			int n = sc.getNumberOfComponents();
-			if (n <= 1) {
+		// there is exactly one route for every communicating pair of components
+		for (int slot = 0; slot < routes.slots(); slot++) {
+			Route r = routes.valueAt(slot);
+			if (r == null) {
 				continue;
 			}
-			int previous = sc.getComponent(0).getIndex();
-
-			for (int i = 1; i < n; i++) {
-
-				int current = sc.getComponent(i).getIndex();
-
-				if (cmps.get(previous, current) != null) {
-					previous = current;
-					continue;
-				}
-				cmps.put(previous, current, true);
-
-				Route r = routes.get(previous, current);
-				int[] nodes = r.getNodes();
+			int[] nodes = r.getNodes();
 
-				double demand = topology.getDemands().get(previous, current);
+			double demand = topology.getDemands().get(r.getFrom(), r.getTo(), 0.0);
 
-				for (int j = 1; j < nodes.length; j++) {
-					int n1idx = nodes[j - 1];
-					int n2idx = nodes[j];
-
-					Double bw = bandwidths.get(n1idx, n2idx);
-					if (bw == null) {
-						bw = topology.getNetwork().getLink(n1idx, n2idx).getBandwidth();
-					}
-					bw -= demand;
-					if (bw < 0) {
-						return false;
-					}
-					bandwidths.put(n1idx, n2idx, bw);
+			for (int j = 1; j < nodes.length; j++) {
+				int l = network.getLinkId(nodes[j - 1], nodes[j]);
+				bandwidths[l] -= demand;
+				if (bandwidths[l] < 0) {
+					return false;
 				}
-
-				previous = current;
 			}
 		}
 
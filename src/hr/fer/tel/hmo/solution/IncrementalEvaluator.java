@@ -0,0 +1,337 @@
+package hr.fer.tel.hmo.solution;
+
+import hr.fer.tel.hmo.network.Network;
+import hr.fer.tel.hmo.network.Server;
+import hr.fer.tel.hmo.network.Topology;
+import hr.fer.tel.hmo.solution.placement.Placement;
+import hr.fer.tel.hmo.solution.routing.Route;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
+import hr.fer.tel.hmo.vnf.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stateful evaluator that is bound to one solution and prices other solutions
+ * by their difference from it. Gives the same power as {@link Evaluator}.
+ * <p>
+ * It keeps number of components on each server and reference counts for each used node and link,
+ * so power is only recalculated for components that moved and routes that changed.
+ * When a {@link Change} says which components and routes those are, work is proportional to the change,
+ * otherwise whole solutions are compared.
+ * Not thread safe, every search should have its own.
+ */
+public class IncrementalEvaluator {
+
+	private final Topology topology;
+
+	/**
+	 * serverLoad[s] = number of components on server s
+	 */
+	private final int[] serverLoad;
+
+	/**
+	 * nodeRefs[n] = number of routes that go over node n
+	 */
+	private final int[] nodeRefs;
+
+	/**
+	 * linkRefs[link id] = number of routes that go over the link
+	 */
+	private final int[] linkRefs;
+
+	/**
+	 * Solution this evaluator is bound to
+	 */
+	private Solution current;
+
+	/**
+	 * Total power of current solution
+	 */
+	private double power;
+
+	public IncrementalEvaluator(Topology topology) {
+		this.topology = topology;
+		serverLoad = new int[topology.getNetwork().getNumberOfServers()];
+		nodeRefs = new int[topology.getNetwork().getNumberOfNodes()];
+		linkRefs = new int[topology.getNetwork().getNumberOfLinks()];
+	}
+
+	/**
+	 * Bind this evaluator to given solution, everything is calculated from scratch
+	 *
+	 * @param solution solution
+	 */
+	public void reset(Solution solution) {
+		Arrays.fill(serverLoad, 0);
+		Arrays.fill(nodeRefs, 0);
+		Arrays.fill(linkRefs, 0);
+
+		power = 0.0;
+		Placement p = solution.getPlacement();
+		for (Component c : topology.getComponents()) {
+			power += place(c, p.getPlacementFor(c));
+		}
+		IntIntObjMatrix<Route> routes = solution.getRoutes();
+		for (int slot = 0; slot < routes.slots(); slot++) {
+			Route r = routes.valueAt(slot);
+			if (r != null) {
+				power += add(r.getNodes());
+			}
+		}
+		current = solution;
+	}
+
+	/**
+	 * @return solution this evaluator is bound to
+	 */
+	public Solution getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Bind this evaluator to other solution by applying only the difference
+	 *
+	 * @param solution other solution, should have routes for same component pairs
+	 * @return total power of new solution
+	 */
+	public double move(Solution solution) {
+		power += apply(current, solution);
+		current = solution;
+		return power;
+	}
+
+	/**
+	 * Calculate power of solution a change gives. State is unchanged after the call.
+	 *
+	 * @param change change that starts from bound solution
+	 * @return total power of changed solution
+	 */
+	public double price(Change change) {
+		checkBase(change);
+		double delta = apply(change, true);
+		apply(change, false);
+		return power + delta;
+	}
+
+	/**
+	 * Bind this evaluator to solution a change gives
+	 *
+	 * @param change change that starts from bound solution
+	 * @return total power of new solution
+	 */
+	public double move(Change change) {
+		checkBase(change);
+		power += apply(change, true);
+		current = change.result;
+		return power;
+	}
+
+	private void checkBase(Change change) {
+		if (change.base != current) {
+			throw new IllegalArgumentException("Change doesn't start from bound solution");
+		}
+	}
+
+	/**
+	 * Apply only components and routes of a change
+	 *
+	 * @param change  change
+	 * @param forward true to go from base to result, false to go back
+	 * @return power difference
+	 */
+	private double apply(Change change, boolean forward) {
+		double delta = 0.0;
+
+		Placement p1 = (forward ? change.base : change.result).getPlacement();
+		Placement p2 = (forward ? change.result : change.base).getPlacement();
+		Component[] components = topology.getComponents();
+		for (int c : change.components) {
+			int s1 = p1.getPlacementFor(c);
+			int s2 = p2.getPlacementFor(c);
+			if (s1 != s2) {
+				delta -= remove(components[c], s1);
+				delta += place(components[c], s2);
+			}
+		}
+
+		IntIntObjMatrix<Route> base = change.base.getRoutes();
+		for (Route newRoute : change.routes) {
+			Route oldRoute = base.get(newRoute.getFrom(), newRoute.getTo());
+			if (newRoute.equals(oldRoute)) {
+				continue;
+			}
+			Route out = forward ? oldRoute : newRoute;
+			Route in = forward ? newRoute : oldRoute;
+			if (out != null) {
+				delta -= remove(out.getNodes());
+			}
+			if (in != null) {
+				delta += add(in.getNodes());
+			}
+		}
+
+		return delta;
+	}
+
+	/**
+	 * Apply changes needed to go from one solution to other
+	 *
+	 * @param from solution that state currently represents
+	 * @param to   solution that state should represent
+	 * @return power difference
+	 */
+	private double apply(Solution from, Solution to) {
+		double delta = 0.0;
+
+		Placement p1 = from.getPlacement();
+		Placement p2 = to.getPlacement();
+		if (p1 != p2) {
+			for (Component c : topology.getComponents()) {
+				int s1 = p1.getPlacementFor(c);
+				int s2 = p2.getPlacementFor(c);
+				if (s1 != s2) {
+					delta -= remove(c, s1);
+					delta += place(c, s2);
+				}
+			}
+		}
+
+		IntIntObjMatrix<Route> r1 = from.getRoutes();
+		IntIntObjMatrix<Route> r2 = to.getRoutes();
+		if (r1 != r2) {
+			for (int slot = 0; slot < r2.slots(); slot++) {
+				Route newRoute = r2.valueAt(slot);
+				if (newRoute == null) {
+					continue;
+				}
+				Route oldRoute = r1.get(newRoute.getFrom(), newRoute.getTo());
+				if (newRoute.equals(oldRoute)) {
+					continue;
+				}
+				if (oldRoute != null) {
+					delta -= remove(oldRoute.getNodes());
+				}
+				delta += add(newRoute.getNodes());
+			}
+		}
+
+		return delta;
+	}
+
+	/**
+	 * @param c           component
+	 * @param serverIndex server
+	 * @return power added by placing component on server
+	 */
+	private double place(Component c, int serverIndex) {
+		Server s = topology.getNetwork().getServer(serverIndex);
+		double p = s.getAdditionalPower(c);
+		if (serverLoad[serverIndex]++ == 0) {
+			p += s.getPmin();
+		}
+		return p;
+	}
+
+	/**
+	 * @param c           component
+	 * @param serverIndex server
+	 * @return power removed by taking component from server
+	 */
+	private double remove(Component c, int serverIndex) {
+		Server s = topology.getNetwork().getServer(serverIndex);
+		double p = s.getAdditionalPower(c);
+		if (--serverLoad[serverIndex] == 0) {
+			p += s.getPmin();
+		}
+		return p;
+	}
+
+	/**
+	 * @param nodes route
+	 * @return power added by using route over given nodes
+	 */
+	private double add(int[] nodes) {
+		if (nodes.length == 1) {
+			return 0.0; // both components on same node
+		}
+
+		Network network = topology.getNetwork();
+		double p = 0.0;
+		if (nodeRefs[nodes[0]]++ == 0) {
+			p += network.getNode(nodes[0]).getPowerConsumption();
+		}
+		for (int i = 1; i < nodes.length; i++) {
+			if (nodeRefs[nodes[i]]++ == 0) {
+				p += network.getNode(nodes[i]).getPowerConsumption();
+			}
+			int l = network.getLinkId(nodes[i - 1], nodes[i]);
+			if (linkRefs[l]++ == 0) {
+				p += network.getLinkPower(l);
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * @param nodes route
+	 * @return power removed by not using route over given nodes anymore
+	 */
+	private double remove(int[] nodes) {
+		if (nodes.length == 1) {
+			return 0.0;
+		}
+
+		Network network = topology.getNetwork();
+		double p = 0.0;
+		if (--nodeRefs[nodes[0]] == 0) {
+			p += network.getNode(nodes[0]).getPowerConsumption();
+		}
+		for (int i = 1; i < nodes.length; i++) {
+			if (--nodeRefs[nodes[i]] == 0) {
+				p += network.getNode(nodes[i]).getPowerConsumption();
+			}
+			int l = network.getLinkId(nodes[i - 1], nodes[i]);
+			if (--linkRefs[l] == 0) {
+				p += network.getLinkPower(l);
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Difference between a solution and a solution made from it
+	 */
+	public static class Change {
+
+		private final Solution base;
+		private final Solution result;
+
+		/**
+		 * Components that can be on other servers in result, all others are on the same servers
+		 */
+		private final int[] components;
+
+		/**
+		 * Routes of result that aren't in base, all other pairs have the same routes
+		 */
+		private final List<Route> routes;
+
+		/**
+		 * @param base       solution change starts from
+		 * @param result     solution change gives
+		 * @param components components that can be on other servers in result
+		 * @param routes     routes of result that aren't in base
+		 */
+		public Change(Solution base, Solution result, int[] components, List<Route> routes) {
+			this.base = base;
+			this.result = result;
+			this.components = components;
+			this.routes = routes;
+		}
+
+		public Solution getBase() {
+			return base;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package hr.fer.tel.hmo.solution;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive weights of constraint violations, used to search through infeasible solutions.
+ * <p>
+ * Penalized power is power plus weighted violations. After every iteration weight of a violation
+ * goes up if current solution has it and down if it doesn't, so search is pushed back
+ * to feasible solutions when it strays too far and can cross infeasible regions otherwise.
+ * Not thread safe, every search should have its own.
+ */
+public class Penalties {
+
+	/**
+	 * Constraints that can be violated, violation is relative to the limit (0.1 = 10% over)
+	 */
+	public enum Violation {
+		/**
+		 * Resources of servers
+		 */
+		RESOURCES,
+		/**
+		 * Bandwidth of links
+		 */
+		BANDWIDTH,
+		/**
+		 * Latency of service chains
+		 */
+		LATENCY
+	}
+
+	/**
+	 * Weight is multiplied or divided by this factor after every iteration
+	 */
+	private static final double FACTOR = 1.5;
+
+	/**
+	 * Weights stay within [scale / LIMIT, scale * LIMIT]
+	 */
+	private static final double LIMIT = 1000.0;
+
+	private final double[] weights;
+
+	private final double min;
+	private final double max;
+
+	/**
+	 * @param scale initial weight of every violation, e.g. power of initial solution
+	 */
+	public Penalties(double scale) {
+		if (!(scale > 0)) {
+			throw new IllegalArgumentException("Penalty scale has to be positive: " + scale);
+		}
+		weights = new double[Violation.values().length];
+		Arrays.fill(weights, scale);
+		min = scale / LIMIT;
+		max = scale * LIMIT;
+	}
+
+	/**
+	 * @param violations violations indexed by {@link Violation#ordinal()}, null if there are none
+	 * @return weighted sum of violations
+	 */
+	public double penalty(double[] violations) {
+		if (violations == null) {
+			return 0.0;
+		}
+		double penalty = 0.0;
+		for (int i = 0; i < weights.length; i++) {
+			penalty += weights[i] * violations[i];
+		}
+		return penalty;
+	}
+
+	/**
+	 * Adapt weights to violations of current solution
+	 *
+	 * @param violations violations of current solution, null if there are none
+	 */
+	public void update(double[] violations) {
+		for (int i = 0; i < weights.length; i++) {
+			if (violations != null && violations[i] > 0) {
+				weights[i] = Math.min(weights[i] * FACTOR, max);
+			} else {
+				weights[i] = Math.max(weights[i] / FACTOR, min);
+			}
+		}
+	}
+
+	/**
+	 * @param violations violations indexed by {@link Violation#ordinal()}, can be null
+	 * @return true if nothing is violated
+	 */
+	public static boolean isFeasible(double[] violations) {
+		if (violations == null) {
+			return true;
+		}
+		for (double v : violations) {
+			if (v > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
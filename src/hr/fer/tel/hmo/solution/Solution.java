@@ -2,10 +2,9 @@ package hr.fer.tel.hmo.solution;
 
 import hr.fer.tel.hmo.solution.placement.Placement;
 import hr.fer.tel.hmo.solution.routing.Route;
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
 
 import java.util.StringJoiner;
-import java.util.stream.Collectors;
 
 /**
  * Represents a <i>possible</i> solution
@@ -14,9 +13,9 @@ public class Solution {
 
 	private final Placement placement;
 
-	private final Matrix<Integer, Integer, Route> routes;
+	private final IntIntObjMatrix<Route> routes;
 
-	public Solution(Placement placement, Matrix<Integer, Integer, Route> routes) {
+	public Solution(Placement placement, IntIntObjMatrix<Route> routes) {
 		this.placement = placement;
 		this.routes = routes;
 	}
@@ -25,7 +24,7 @@ public class Solution {
 		return placement;
 	}
 
-	public Matrix<Integer, Integer, Route> getRoutes() {
+	public IntIntObjMatrix<Route> getRoutes() {
 		return routes;
 	}
 
@@ -53,13 +52,7 @@ public class Solution {
 	@Override
 	public String toString() {
 		StringJoiner routing = new StringJoiner(",\n", "routes={\n", "\n};");
-		for (Integer from : routes.keys()) {
-			routing.add(
-					routes.valuesFor(from).stream()
-							.map(Route::toString)
-							.collect(Collectors.joining(",\n"))
-			);
-		}
+		routes.forEachValue(r -> routing.add(r.toString()));
 		return placement + "\n\n" + routing;
 	}
 }
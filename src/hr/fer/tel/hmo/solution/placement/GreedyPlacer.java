@@ -18,12 +18,30 @@ import java.util.stream.Collectors;
  */
 public class GreedyPlacer extends Placer {
 
+	/**
+	 * How many times placement is retried if it isn't valid
+	 */
+	private static final int MAX_ATTEMPTS = 100;
+
 	GreedyPlacer(Topology topology, Function<Placement, Boolean> isValid) {
 		super(topology, isValid);
 	}
 
 	@Override
 	public Placement next() {
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			Placement p = place();
+			if (isValid.apply(p)) {
+				return p;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return greedy placement, it respects server resources
+	 */
+	private Placement place() {
 
 		int numNps = topology.getNetwork().getNumberOfNodes();
 		NodeProxy[] nps = new NodeProxy[numNps];
@@ -35,7 +53,7 @@ public class GreedyPlacer extends Placer {
 		ServerProxy[] sps = new ServerProxy[numSps];
 		for (int i = 0; i < numSps; i++) {
 			Server s = topology.getNetwork().getServer(i);
-			sps[i] = new ServerProxy(s, nps[s.getNode().getIndex()]);
+			sps[i] = new ServerProxy(s, nps[s.getNode().getIndex()], topology.getResources());
 		}
 
 		Placement p = new Placement(
@@ -69,7 +87,7 @@ public class GreedyPlacer extends Placer {
 
 			if (sp == null) {
 				// lolz
-				return next();
+				return place();
 			}
 
 			sp.emplace(c);
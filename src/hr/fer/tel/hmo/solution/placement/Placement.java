@@ -24,6 +24,11 @@ public class Placement {
 	 */
 	private final int numberOfServers;
 
+	/**
+	 * Components that {@link #neighbor(int)} shuffled to create this placement, null otherwise
+	 */
+	private int[] shuffled;
+
 	/**
 	 * Create a new empty placement.
 	 *
@@ -66,9 +71,19 @@ public class Placement {
 		for (int i = n - 1; i > 0; --i) {
 			Util.swap(p.placement, indexes[i], indexes[Util.randomInt(i)]);
 		}
+		p.shuffled = indexes;
 		return p;
 	}
 
+	/**
+	 * All other components are on the same servers as in placement this one was created from
+	 *
+	 * @return components that were shuffled to create this placement, null if it isn't a neighbor
+	 */
+	public int[] getShuffled() {
+		return shuffled;
+	}
+
 	/**
 	 * Places a component with given index on a server with given index
 	 *
@@ -9,16 +9,6 @@ import java.util.function.Function;
  */
 public abstract class Placer {
 
-	private static Placer PLACER = null;
-
-	public static Placer get(Topology t, Function<Placement, Boolean> isValid) {
-		if (PLACER == null) {
-//			PLACER = new RandomPlacer(t, isValid);
-			PLACER = new GreedyPlacer(t, isValid);
-		}
-		return PLACER;
-	}
-
 	/**
 	 * Static network topology
 	 */
@@ -35,7 +25,7 @@ public abstract class Placer {
 	}
 
 	/**
-	 * @return next initial placement to use
+	 * @return next valid initial placement to use, null if placer gave up looking for one
 	 */
 	public abstract Placement next();
 
@@ -0,0 +1,26 @@
+package hr.fer.tel.hmo.solution.placement;
+
+import hr.fer.tel.hmo.network.Topology;
+
+import java.util.function.Function;
+
+/**
+ * Creates placers for a topology.
+ * Every worker should ask the factory for its own instance.
+ */
+@FunctionalInterface
+public interface PlacerFactory {
+
+	PlacerFactory GREEDY = GreedyPlacer::new;
+
+	PlacerFactory RANDOM = RandomPlacer::new;
+
+	PlacerFactory DEFAULT = GREEDY;
+
+	/**
+	 * @param topology topology, only read by the placer
+	 * @param isValid  function to test if a placement is valid
+	 * @return new placer
+	 */
+	Placer create(Topology topology, Function<Placement, Boolean> isValid);
+}
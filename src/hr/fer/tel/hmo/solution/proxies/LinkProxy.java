@@ -4,13 +4,13 @@ package hr.fer.tel.hmo.solution.proxies;
 import hr.fer.tel.hmo.network.Link;
 
 import java.util.Comparator;
-import java.util.HashSet;
 
 /**
  * Proxy class for Link
  */
 public class LinkProxy implements Comparable<LinkProxy> {
 
+	public final int index;
 	public final NodeProxy to;
 	public final double delay;
 	public double bandwidth;
@@ -19,6 +19,7 @@ public class LinkProxy implements Comparable<LinkProxy> {
 
 	public LinkProxy(NodeProxy to, Link link) {
 		this.to = to;
+		index = link.getIndex();
 		delay = link.getDelay();
 		bandwidth = link.getBandwidth();
 		power = link.getPowerConsumption();
@@ -52,17 +53,6 @@ public class LinkProxy implements Comparable<LinkProxy> {
 		return power;
 	}
 
-	public double powerUp(HashSet<NodeProxy> nps, HashSet<LinkProxy> lps) {
-		double power = 0.0;
-		if (!used && !lps.contains(this)) {
-			power += this.power;
-		}
-		if (!to.used && !nps.contains(to)) {
-			power += to.node.getPowerConsumption();
-		}
-		return power;
-	}
-
 	@Override
 	public int compareTo(LinkProxy o) {
 		return Double.compare(powerUp(), o.powerUp());
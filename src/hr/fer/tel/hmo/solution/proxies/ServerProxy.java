@@ -1,53 +1,66 @@
 package hr.fer.tel.hmo.solution.proxies;
 
+import hr.fer.tel.hmo.network.ResourceModel;
 import hr.fer.tel.hmo.network.Server;
+import hr.fer.tel.hmo.util.Util;
 import hr.fer.tel.hmo.vnf.Component;
 
 /**
- * Proxy class for Server
+ * Proxy class for Server, works with any number of resources
  */
 public class ServerProxy {
 
 	public final int index;
 	private final double pmin;
-	private final double pmax;
 
-	private final double totalProcRes;
-	private final double totalMemRes;
+	private final ResourceModel resources;
 
-	private double usedProcRes;
-	private double usedMemRes;
+	/**
+	 * used[r] = used amount of resource r
+	 */
+	private final double[] used;
+
+	/**
+	 * Number of components placed on this server
+	 */
+	private int components;
 
 	private final NodeProxy np;
 
-	public ServerProxy(Server s, NodeProxy np) {
+	public ServerProxy(Server s, NodeProxy np, ResourceModel resources) {
 		index = s.getIndex();
 		pmin = s.getPmin();
-		pmax = s.getPmax();
 
-		totalProcRes = s.getResources().get(0);
-		totalMemRes = s.getResources().get(1);
-		usedProcRes = 0;
-		usedMemRes = 0;
+		this.resources = resources;
+		used = new double[resources.getNumberOfResources()];
+		components = 0;
 
 		this.np = np;
 	}
 
 	public boolean canGo(Component c) {
-		return usedProcRes + c.getResources().get(0) <= totalProcRes &&
-				usedMemRes + c.getResources().get(1) <= totalMemRes;
+		int ci = c.getIndex();
+		for (int r = 0; r < used.length; r++) {
+			if (used[r] + resources.demand(ci, r) > resources.capacity(index, r) + Util.EPS) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	public void emplace(Component c) {
-		usedProcRes += c.getResources().get(0);
-		usedMemRes += c.getResources().get(1);
+		int ci = c.getIndex();
+		for (int r = 0; r < used.length; r++) {
+			used[r] += resources.demand(ci, r);
+		}
+		components++;
 		np.used = true;
 	}
 
 	public double powerUp(Component c) {
 		double power = np.used ? 0.0 : np.node.getPowerConsumption();
-		power += Double.compare(usedMemRes + usedProcRes, 0.0) == 0 ? pmin : 0.0;
-		power += (pmax - pmin) * c.getResources().get(0) / totalProcRes;
+		power += components == 0 ? pmin : 0.0;
+		power += resources.additionalPower(index, c.getIndex());
 		return power;
 	}
 
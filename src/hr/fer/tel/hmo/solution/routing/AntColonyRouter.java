@@ -3,212 +3,384 @@ package hr.fer.tel.hmo.solution.routing;
 import hr.fer.tel.hmo.network.Topology;
 import hr.fer.tel.hmo.solution.proxies.LinkProxy;
 import hr.fer.tel.hmo.solution.proxies.NodeProxy;
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.Rng;
 import hr.fer.tel.hmo.util.Util;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
 
 /**
  * Find route using ant colony optimization.
+ * <p>
+ * Pheromones are kept in a flat array indexed by link id and every ant walks using
+ * scratch buffers that are allocated once per router, so nothing is allocated while ants walk.
+ * <p>
+ * Ants of one iteration only read shared state, so they can walk in parallel.
+ * Every ant has its own random generator and the iteration's best ant is chosen
+ * by power and then by ant index, so result doesn't depend on scheduling.
  */
 public class AntColonyRouter extends SequentialRouter {
 
-	private static final int NUM_ANTS = 4;
+	static final int NUM_ANTS = 4;
+	static final int PARALLEL_ANTS = 32;
 	private static final int ITERATIONS = 1000;
 
 	private static final double ALPHA = 5.0;
 	private static final double BETA = 5.0;
 	private static final double RHO = 3e-2;
 
-	private Matrix<Integer, Integer, Double> pheromones;
+	/**
+	 * Whether ants of one iteration walk in parallel
+	 */
+	private final boolean parallel;
+
+	/**
+	 * initialTau[link id] = 1 / number of links going out of the link's start node
+	 */
+	private final double[] initialTau;
+
+	/**
+	 * pheromones[link id] = pheromone on link
+	 */
+	private final double[] pheromones;
+
+	/**
+	 * logHeuristic[link id] = log(1 / power up of link), constant while one pair is routed
+	 * because ants never consider links or nodes they already visited
+	 */
+	private final double[] logHeuristic;
+
+	/**
+	 * weights[link id] = tau ^ alpha * heuristic ^ beta, valid if weightStamp[link id] == iterationStamp
+	 */
+	private final double[] weights;
+	private final int[] weightStamp;
+	private int iterationStamp;
+
+	/**
+	 * Ants with their scratch buffers
+	 */
+	private final Ant[] ants;
+
+	/**
+	 * Best route in current iteration
+	 */
+	private final int[] iterationRoute;
+	private final int[] iterationLinks;
+	private int iterationLength;
+	private double iterationPower;
+
+	/**
+	 * Best route overall
+	 */
+	private final int[] bestRoute;
+	private int bestLength;
+	private double bestPower;
 
 	AntColonyRouter(Topology topology) {
-		super(topology);
+		this(topology, NUM_ANTS, false);
 	}
 
-	private void initPheromones() {
-		pheromones = new Matrix<>();
-		for (NodeProxy np : neighbors.keys()) {
-			Map<NodeProxy, LinkProxy> map = neighbors.getFor(np);
-			double tau = 1. / map.size();
-			map.keySet().forEach(np_ ->
-					pheromones.put(np.node.getIndex(), np_.node.getIndex(), tau)
-			);
+	/**
+	 * @param topology topology
+	 * @param numAnts  number of ants in every iteration
+	 * @param parallel whether ants of one iteration walk in parallel
+	 */
+	AntColonyRouter(Topology topology, int numAnts, boolean parallel) {
+		super(topology);
+		this.parallel = parallel;
+
+		int N = network.getNumberOfNodes();
+		int L = network.getNumberOfLinks();
+
+		initialTau = new double[L];
+		int maxDegree = 0;
+		for (int n = 0; n < N; n++) {
+			int start = network.getOutStart(n);
+			int end = network.getOutEnd(n);
+			maxDegree = Math.max(maxDegree, end - start);
+			for (int k = start; k < end; k++) {
+				initialTau[network.getOutLink(k)] = 1. / (end - start);
+			}
 		}
+
+		pheromones = new double[L];
+		logHeuristic = new double[L];
+		weights = new double[L];
+		weightStamp = new int[L];
+
+		ants = new Ant[numAnts];
+		for (int i = 0; i < numAnts; i++) {
+			ants[i] = new Ant(N, L, maxDegree);
+		}
+
+		iterationRoute = new int[N];
+		iterationLinks = new int[N];
+		bestRoute = new int[N];
 	}
 
 	@Override
 	protected List<Integer> path(NodeProxy from, NodeProxy end, double delay, double bandwidth) {
 
 		// Ant colony route finding
-		initPheromones();
+		System.arraycopy(initialTau, 0, pheromones, 0, pheromones.length);
+		Arrays.fill(weightStamp, 0);
+		iterationStamp = 0;
 
-		PowerRoute best = new PowerRoute();
+		for (int l = 0; l < logHeuristic.length; l++) {
+			double ni = staticPowerUp(l);
+			logHeuristic[l] = ni < Util.EPS ? 0.0 : -Math.log(ni);
+		}
 
-		Matrix<NodeProxy, NodeProxy, LinkProxy> valids =
-				neighbors.filter(lp -> lp.validParams(delay, bandwidth));
+		long seed = Rng.current().nextLong();
+		for (int i = 0; i < ants.length; i++) {
+			ants[i].random = new SplittableRandom(seed + i);
+		}
+
+		int start = from.node.getIndex();
+		int goal = end.node.getIndex();
+
+		bestLength = 0;
+		bestPower = Double.MAX_VALUE;
 
 		for (int iteration = 0; iteration < ITERATIONS; iteration++) {
-			PowerRoute currentBest = new PowerRoute();
+			iterationLength = 0;
+			iterationPower = Double.MAX_VALUE;
+			iterationStamp++;
+
+			double progress = 1. * iteration / ITERATIONS;
+			double alpha = ALPHA * (1 - progress);
+			double beta = BETA * progress;
+
+			if (parallel) {
+				// ants only read weights, so all of them have to be computed up front
+				for (int l = 0; l < weights.length; l++) {
+					weights[l] = weight(l, alpha, beta);
+					weightStamp[l] = iterationStamp;
+				}
+				IntStream.range(0, ants.length).parallel()
+						.forEach(i -> ants[i].walk(start, goal, delay, bandwidth, alpha, beta));
+			} else {
+				for (Ant ant : ants) {
+					ant.walk(start, goal, delay, bandwidth, alpha, beta);
+				}
+			}
 
-			for (int __ = 0; __ < NUM_ANTS; __++) {
-				currentBest = currentBest.better(ant(from, end, valids, iteration));
+			// first ant wins ties
+			for (Ant ant : ants) {
+				if (ant.found && ant.power < iterationPower) {
+					System.arraycopy(ant.route, 0, iterationRoute, 0, ant.length);
+					System.arraycopy(ant.links, 0, iterationLinks, 0, ant.length - 1);
+					iterationLength = ant.length;
+					iterationPower = ant.power;
+				}
 			}
 
-			if (!currentBest.exists()) {
+			if (iterationLength == 0) {
 				continue;
 			}
 
 			// EVAPORATION
-			pheromones.map(tau -> tau * (1 - RHO));
+			for (int l = 0; l < pheromones.length; l++) {
+				pheromones[l] *= 1 - RHO;
+			}
 
 			// REINFORCEMENT
-			double delta = currentBest.power < Util.EPS ? 1.0 : 1. / currentBest.power;
+			double delta = iterationPower < Util.EPS ? 1.0 : 1. / iterationPower;
 
-			int prev = currentBest.route.get(0);
-			for (int i = 1, N = currentBest.route.size(); i < N; i++) {
-				int curr = currentBest.route.get(i);
-				pheromones.compute(prev, curr, tau -> Math.min(tau + delta, 1.0));
-				prev = curr;
+			for (int i = 0; i < iterationLength - 1; i++) {
+				int l = iterationLinks[i];
+				pheromones[l] = Math.min(pheromones[l] + delta, 1.0);
 			}
 
-			best = best.better(currentBest);
+			if (iterationPower < bestPower) {
+				System.arraycopy(iterationRoute, 0, bestRoute, 0, iterationLength);
+				bestLength = iterationLength;
+				bestPower = iterationPower;
+			}
 		}
 
-		if (best.exists()) {
-			// UPDATE links and nodes, use them
-			int prev = best.route.get(0);
-			nodes[prev].used = true;
-			for (int i = 1, N = best.route.size(); i < N; i++) {
-				int curr = best.route.get(i);
-				// use link
-				neighbors.get(nodes[prev], nodes[curr]).used = true;
-				// use node
-				nodes[curr].used = true;
-				prev = curr;
-			}
+		if (bestLength == 0) {
+			return null;
+		}
+
+		List<Integer> route = new ArrayList<>(bestLength);
+		for (int i = 0; i < bestLength; i++) {
+			route.add(bestRoute[i]);
 		}
 
-		return best.route;
+		return route;
 	}
 
 	/**
-	 * Use ant to find a feasible route
-	 *
-	 * @param from      from node
-	 * @param to        to node
-	 * @param neighbors neighbors map
-	 * @param iteration iteration
-	 * @return feasible route or null if none found
+	 * @param l     link's id
+	 * @param alpha pheromone exponent
+	 * @param beta  heuristic exponent
+	 * @return tau ^ alpha * heuristic ^ beta
 	 */
-	private PowerRoute ant(NodeProxy from, NodeProxy to, Matrix<NodeProxy, NodeProxy, LinkProxy> neighbors, int iteration) {
-		List<Integer> route = new ArrayList<>();
-		double power = 0.0;
-
-		// initial structures
-		HashSet<NodeProxy> newlyUsedNodes = new HashSet<>();
-		HashSet<LinkProxy> newlyUsedLinks = new HashSet<>();
-		newlyUsedNodes.add(from);
-
-		do {
-			route.add(from.node.getIndex());
-			if (from.equals(to)) {
-				break;
-			}
-
-			List<LinkProxy> links = new ArrayList<>(neighbors.getFor(from).values());
-			links.removeIf(lp -> newlyUsedNodes.contains(lp.to));
-			links.removeIf(newlyUsedLinks::contains);
-
-			LinkProxy lp = chooseLink(from.node.getIndex(), links, iteration, newlyUsedLinks, newlyUsedNodes);
-			if (lp == null) {
-				return null;
-			}
-
-			power += lp.powerUp(newlyUsedNodes, newlyUsedLinks);
-
-			newlyUsedLinks.add(lp);
-			newlyUsedNodes.add(lp.to);
-
-			from = lp.to;
-
-		} while (true);
-
-		return new PowerRoute(power, route);
+	private double weight(int l, double alpha, double beta) {
+		return Math.exp(alpha * Math.log(pheromones[l]) + beta * logHeuristic[l]);
 	}
 
 	/**
-	 * Choose link based on roulette selection.
+	 * How much will power rise if an ant chooses given link.
+	 * Ants only choose links and nodes they haven't visited, so only routes
+	 * found for previous pairs matter.
 	 *
-	 * @param from      from which node
-	 * @param links     outgoing links from given node
-	 * @param iteration iteration
-	 * @param usedLinks used links
-	 * @param usedNodes used nodes
-	 * @return chosen link
+	 * @param l link's id
+	 * @return power up
 	 */
-	private LinkProxy chooseLink(int from, Collection<LinkProxy> links, int iteration,
-	                             HashSet<LinkProxy> usedLinks, HashSet<NodeProxy> usedNodes) {
-
-		if (links.isEmpty()) {
-			return null;
+	private double staticPowerUp(int l) {
+		double power = 0.0;
+		if (!links[l].used) {
+			power += network.getLinkPower(l);
 		}
-
-		class tmp {
-			private LinkProxy lp;
-			private double prob;
-
-			private tmp(LinkProxy lp) {
-				this.lp = lp;
-
-				double tau = pheromones.get(from, lp.to.node.getIndex());
-				double ni = lp.powerUp(usedNodes, usedLinks);
-				ni = ni < Util.EPS ? 1.0 : 1. / ni;
-
-				double procenat = 1. * iteration / ITERATIONS;
-				prob = Math.pow(tau, ALPHA * (1 - procenat)) * Math.pow(ni, BETA * procenat);
-			}
+		NodeProxy to = nodes[network.getLinkTo(l)];
+		if (!to.used) {
+			power += to.node.getPowerConsumption();
 		}
-
-		List<tmp> tmps = new LinkedList<>();
-
-		double total = 0.0;
-		for (LinkProxy lp : links) {
-			tmp t = new tmp(lp);
-			total += t.prob;
-			tmps.add(t);
-		}
-
-		final double _total = total;
-		return Util.roulette(tmps, t -> t.prob / _total, t -> t.lp);
+		return power;
 	}
 
-	private static class PowerRoute {
-		final double power;
-		final List<Integer> route;
+	/**
+	 * One ant with everything it needs to walk
+	 */
+	private class Ant {
 
-		PowerRoute() {
-			this(Double.MAX_VALUE, null);
-		}
+		/**
+		 * Node or link is visited by this ant if its stamp equals stamp
+		 */
+		private final int[] nodeStamp;
+		private final int[] linkStamp;
+		private int stamp;
+
+		/**
+		 * Walked route (nodes and links between them) and its power
+		 */
+		private final int[] route;
+		private final int[] links;
+		private int length;
+		private double power;
+		private boolean found;
 
-		PowerRoute(double power, List<Integer> route) {
-			this.power = power;
-			this.route = route;
+		/**
+		 * Candidate links and cumulative sum of their weights for roulette selection
+		 */
+		private final int[] candidates;
+		private final double[] cumulative;
+
+		private SplittableRandom random;
+
+		Ant(int numNodes, int numLinks, int maxDegree) {
+			nodeStamp = new int[numNodes];
+			linkStamp = new int[numLinks];
+			route = new int[numNodes];
+			links = new int[numNodes];
+			candidates = new int[maxDegree];
+			cumulative = new double[maxDegree];
 		}
 
 		/**
-		 * @return if it has a valid route
+		 * Find a feasible route, result is stored in route, links, length, power and found
+		 *
+		 * @param from      from node
+		 * @param to        to node
+		 * @param delay     maximal delay
+		 * @param bandwidth demanded bandwidth
+		 * @param alpha     pheromone exponent
+		 * @param beta      heuristic exponent
 		 */
-		boolean exists() {
-			return route != null;
+		void walk(int from, int to, double delay, double bandwidth, double alpha, double beta) {
+			if (++stamp == 0) {
+				// stamps wrapped around, forget all of them
+				Arrays.fill(nodeStamp, 0);
+				Arrays.fill(linkStamp, 0);
+				stamp = 1;
+			}
+			length = 0;
+			power = 0.0;
+			found = false;
+			double walked = 0.0;
+
+			nodeStamp[from] = stamp;
+
+			do {
+				route[length++] = from;
+				if (from == to) {
+					found = true;
+					return;
+				}
+
+				int l = chooseLink(from, to, delay - walked, bandwidth, alpha, beta);
+				if (l < 0) {
+					return;
+				}
+
+				power += staticPowerUp(l);
+				walked += network.getLinkDelay(l);
+
+				links[length - 1] = l;
+				linkStamp[l] = stamp;
+				from = network.getLinkTo(l);
+				nodeStamp[from] = stamp;
+
+			} while (true);
 		}
 
 		/**
-		 * @param other other route
-		 * @return this or other, which ever is better
+		 * Choose link based on roulette selection over cumulative weights.
+		 *
+		 * @param from      from which node
+		 * @param goal      node where the ant is going
+		 * @param delay     delay left
+		 * @param bandwidth demanded bandwidth
+		 * @param alpha     pheromone exponent
+		 * @param beta      heuristic exponent
+		 * @return chosen link's id or -1 if there are no links to choose from
 		 */
-		PowerRoute better(PowerRoute other) {
-			return other == null || power <= other.power ? this : other;
+		private int chooseLink(int from, int goal, double delay, double bandwidth, double alpha, double beta) {
+			int count = 0;
+			double total = 0.0;
+
+			for (int k = network.getOutStart(from), e = network.getOutEnd(from); k < e; k++) {
+				int l = network.getOutLink(k);
+				LinkProxy lp = AntColonyRouter.this.links[l];
+				int to = network.getLinkTo(l);
+				if (!lp.validParams(delay, bandwidth) || lp.delay + distances.minDelay(to, goal) > delay
+						|| nodeStamp[to] == stamp || linkStamp[l] == stamp) {
+					continue;
+				}
+
+				if (weightStamp[l] != iterationStamp) {
+					weights[l] = weight(l, alpha, beta);
+					weightStamp[l] = iterationStamp;
+				}
+
+				total += weights[l];
+				candidates[count] = l;
+				cumulative[count] = total;
+				count++;
+			}
+
+			if (count == 0) {
+				return -1;
+			}
+
+			if (!(total > 0.0) || Double.isInfinite(total)) {
+				// all weights underflowed or overflowed, choose uniformly
+				return candidates[random.nextInt(count)];
+			}
+
+			double p = random.nextDouble() * total;
+			for (int i = 0; i < count - 1; i++) {
+				if (p <= cumulative[i]) {
+					return candidates[i];
+				}
+			}
+			return candidates[count - 1];
 		}
 	}
 
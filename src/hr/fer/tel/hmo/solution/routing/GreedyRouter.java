@@ -20,25 +20,29 @@ public class GreedyRouter extends SequentialRouter {
 	@Override
 	protected List<Integer> path(NodeProxy from, NodeProxy end, double delay, double bandwidth) {
 		LinkedHashSet<NodeProxy> path = new LinkedHashSet<>();
+		LinkProxy.LinkComp comp = new LinkProxy.LinkComp(end);
+		int target = end.node.getIndex();
 
 		path.add(from);
 		while (!from.equals(end)) {
 
-			from.used = true;
-
-			double _delay = delay;
-			LinkProxy best = neighbors.getFor(from).values().stream()
-					.filter(lp -> !path.contains(lp.to))
-					.filter(lp -> lp.validParams(_delay, bandwidth))
-					.min(new LinkProxy.LinkComp(end))
-					.orElse(null);
+			LinkProxy best = null;
+			int n = from.node.getIndex();
+			for (int k = network.getOutStart(n), e = network.getOutEnd(n); k < e; k++) {
+				LinkProxy lp = links[network.getOutLink(k)];
+				if (path.contains(lp.to) || !lp.validParams(delay, bandwidth)
+						|| lp.delay + distances.minDelay(lp.to.node.getIndex(), target) > delay) {
+					continue;
+				}
+				if (comp.compare(lp, best) < 0) {
+					best = lp;
+				}
+			}
 
 			if (best == null) {
 				return null;
 			}
 
-			best.used = true;
-			best.bandwidth -= bandwidth;
 			delay -= best.delay;
 
 			from = best.to;
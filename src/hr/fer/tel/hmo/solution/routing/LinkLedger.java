@@ -0,0 +1,177 @@
+package hr.fer.tel.hmo.solution.routing;
+
+import hr.fer.tel.hmo.network.Network;
+import hr.fer.tel.hmo.solution.proxies.LinkProxy;
+import hr.fer.tel.hmo.solution.proxies.NodeProxy;
+
+import java.util.Arrays;
+
+/**
+ * Residual bandwidth and used nodes and links of one routing.
+ * <p>
+ * Routers only search over the proxies, every route is committed here, so bandwidth is taken
+ * the same way for all of them. Commits are journaled, so they can be rolled back without
+ * resetting every node and link.
+ * Proxies are created once and reset for every routing.
+ */
+class LinkLedger {
+
+	private final Network network;
+
+	final NodeProxy[] nodes;
+
+	/**
+	 * links[link id] = proxy
+	 */
+	final LinkProxy[] links;
+
+	/**
+	 * Number of committed routes that go over each node and link
+	 */
+	private final int[] nodeRefs;
+	private final int[] linkRefs;
+
+	/**
+	 * singles[n] = route that only has node n
+	 */
+	private final int[][] singles;
+
+	/**
+	 * Committed routes and their bandwidth, in order of commits
+	 */
+	private int[][] journal = new int[16][];
+	private double[] bandwidths = new double[16];
+	private int size;
+
+	LinkLedger(Network network) {
+		this.network = network;
+
+		int N = network.getNumberOfNodes();
+		nodes = new NodeProxy[N];
+		singles = new int[N][];
+		for (int n = 0; n < N; n++) {
+			nodes[n] = new NodeProxy(network.getNode(n));
+			singles[n] = new int[]{n};
+		}
+
+		int L = network.getNumberOfLinks();
+		links = new LinkProxy[L];
+		for (int l = 0; l < L; l++) {
+			links[l] = new LinkProxy(nodes[network.getLinkTo(l)], network.getLink(l));
+		}
+
+		nodeRefs = new int[N];
+		linkRefs = new int[L];
+	}
+
+	/**
+	 * Start a new routing, nothing is used and all bandwidth is free
+	 */
+	void reset() {
+		Arrays.fill(nodeRefs, 0);
+		Arrays.fill(linkRefs, 0);
+		for (NodeProxy np : nodes) {
+			np.used = false;
+		}
+		for (int l = 0; l < links.length; l++) {
+			links[l].used = false;
+			links[l].bandwidth = network.getLinkBandwidth(l);
+		}
+		Arrays.fill(journal, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Check if a route can be used with current residual bandwidth
+	 *
+	 * @param route     nodes on route
+	 * @param delay     maximal delay
+	 * @param bandwidth demanded bandwidth
+	 * @return true if every link has enough bandwidth and total delay is within limit
+	 */
+	boolean fits(int[] route, double delay, double bandwidth) {
+		for (int i = 1; i < route.length; i++) {
+			LinkProxy lp = links[network.getLinkId(route[i - 1], route[i])];
+			if (!lp.validParams(delay, bandwidth)) {
+				return false;
+			}
+			delay -= lp.delay;
+		}
+		return true;
+	}
+
+	/**
+	 * Route is free if all of its nodes and links are already used by other routes.
+	 * No other route can use less power, so a search for this pair can be skipped.
+	 *
+	 * @param route nodes on route
+	 * @return true if route doesn't add any power
+	 */
+	boolean isFree(int[] route) {
+		if (!nodes[route[0]].used) {
+			return false;
+		}
+		for (int i = 1; i < route.length; i++) {
+			if (!nodes[route[i]].used || !links[network.getLinkId(route[i - 1], route[i])].used) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Use a node, e.g. node of a server that has components
+	 *
+	 * @param node node
+	 */
+	void use(int node) {
+		commit(singles[node], 0.0);
+	}
+
+	/**
+	 * Use nodes and links of a route and take its bandwidth
+	 *
+	 * @param route     nodes on route
+	 * @param bandwidth demanded bandwidth
+	 */
+	void commit(int[] route, double bandwidth) {
+		if (size == journal.length) {
+			journal = Arrays.copyOf(journal, 2 * size);
+			bandwidths = Arrays.copyOf(bandwidths, 2 * size);
+		}
+		journal[size] = route;
+		bandwidths[size] = bandwidth;
+		size++;
+
+		nodeRefs[route[0]]++;
+		nodes[route[0]].used = true;
+		for (int i = 1; i < route.length; i++) {
+			int l = network.getLinkId(route[i - 1], route[i]);
+			linkRefs[l]++;
+			links[l].used = true;
+			links[l].bandwidth -= bandwidth;
+			nodeRefs[route[i]]++;
+			nodes[route[i]].used = true;
+		}
+	}
+
+	/**
+	 * Release everything that was committed, newest first
+	 */
+	void rollback() {
+		while (size > 0) {
+			size--;
+			int[] route = journal[size];
+			double bandwidth = bandwidths[size];
+			journal[size] = null;
+
+			nodes[route[0]].used = --nodeRefs[route[0]] > 0;
+			for (int i = 1; i < route.length; i++) {
+				int l = network.getLinkId(route[i - 1], route[i]);
+				links[l].used = --linkRefs[l] > 0;
+				links[l].bandwidth += bandwidth;
+				nodes[route[i]].used = --nodeRefs[route[i]] > 0;
+			}
+		}
+	}
+}
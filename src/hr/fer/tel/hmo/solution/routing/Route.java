@@ -44,6 +44,20 @@ public class Route {
 		}
 	}
 
+	/**
+	 * @param from  component from which traffic is routed
+	 * @param to    component to which traffic is routed
+	 * @param nodes nodes on route, array is shared and must not be changed
+	 */
+	Route(int from, int to, int[] nodes) {
+		if (nodes.length == 0) {
+			throw new RuntimeException("Can't be 0");
+		}
+		this.from = from;
+		this.to = to;
+		this.nodes = nodes;
+	}
+
 	public int getFrom() {
 		return from;
 	}
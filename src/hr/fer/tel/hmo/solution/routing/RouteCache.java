@@ -0,0 +1,62 @@
+package hr.fer.tel.hmo.solution.routing;
+
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
+
+/**
+ * Bounded cache of routes between two nodes, it is emptied when it gets full.
+ * <p>
+ * Cached route is only a suggestion, it has to be checked against current
+ * residual bandwidth and delay limit before it is used.
+ * Nodes aren't boxed, so lookups don't allocate.
+ * Not thread safe, every router has its own.
+ */
+class RouteCache {
+
+	/**
+	 * Default maximal number of cached routes
+	 */
+	static final int DEFAULT_CAPACITY = 4096;
+
+	private final int capacity;
+
+	private final IntIntObjMatrix<int[]> routes;
+
+	RouteCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity maximal number of cached routes
+	 */
+	RouteCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		routes = new IntIntObjMatrix<>(capacity);
+	}
+
+	/**
+	 * @param from start node
+	 * @param to   end node
+	 * @return nodes of last route found between given nodes or null if there isn't one
+	 */
+	int[] get(int from, int to) {
+		return routes.get(from, to);
+	}
+
+	/**
+	 * Remember a route between its first and last node
+	 *
+	 * @param nodes nodes on route
+	 */
+	void put(int[] nodes) {
+		int from = nodes[0];
+		int to = nodes[nodes.length - 1];
+		if (routes.size() >= capacity && !routes.contains(from, to)) {
+			// routes of recent placements are found again quickly, so old ones are dropped all at once
+			routes.clear();
+		}
+		routes.put(from, to, nodes);
+	}
+}
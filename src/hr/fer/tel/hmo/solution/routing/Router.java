@@ -1,23 +1,66 @@
 package hr.fer.tel.hmo.solution.routing;
 
-import hr.fer.tel.hmo.network.Topology;
 import hr.fer.tel.hmo.solution.placement.Placement;
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
+
+import java.util.List;
 
 /**
  * Routes connections over network (greedy)
  */
 public abstract class Router {
 
-	private static Router ROUTER = null;
+	/**
+	 * Find routes between all communicating components.
+	 * Implementations aren't thread safe, use {@link RouterFactory} to get one router per thread.
+	 *
+	 * @param placement placement of components
+	 * @return routes[from component][to component] or null if routing wasn't found
+	 */
+	public abstract IntIntObjMatrix<Route> findRouting(Placement placement);
+
+	/**
+	 * Find routes between all communicating components, starting from a previous routing.
+	 * Routes of pairs whose components didn't move can be kept, so only moved pairs are routed again.
+	 *
+	 * @param placement placement of components
+	 * @param previous  routing of a similar placement, can be null
+	 * @return routes[from component][to component] or null if routing wasn't found
+	 */
+	public IntIntObjMatrix<Route> findRouting(Placement placement, IntIntObjMatrix<Route> previous) {
+		return findRouting(placement, previous, null);
+	}
 
-	public static Router get(Topology t) {
-		if (ROUTER == null) {
-//			ROUTER = new GreedyRouter(t);
-			ROUTER = new AntColonyRouter(t);
+	/**
+	 * Same as {@link #findRouting(Placement, IntIntObjMatrix)}, but also tells which routes weren't kept.
+	 * Pairs that aren't in changed have the same route object as in previous routing.
+	 *
+	 * @param placement placement of components
+	 * @param previous  routing of a similar placement, can be null
+	 * @param changed   if not null, gets routes that aren't taken from previous routing
+	 * @return routes[from component][to component] or null if routing wasn't found
+	 */
+	public IntIntObjMatrix<Route> findRouting(Placement placement, IntIntObjMatrix<Route> previous,
+	                                          List<Route> changed) {
+		IntIntObjMatrix<Route> routes = findRouting(placement);
+		if (routes != null && changed != null) {
+			routes.forEachValue(changed::add);
 		}
-		return ROUTER;
+		return routes;
 	}
 
-	public abstract Matrix<Integer, Integer, Route> findRouting(Placement placement);
+	/**
+	 * Find routes between all communicating components even if some of them break delay or bandwidth,
+	 * used by searches that go through invalid solutions. Pairs are routed within limits when it is possible.
+	 * Routers that can't relax limits give the same result as {@link #findRouting(Placement, IntIntObjMatrix, List)}.
+	 *
+	 * @param placement placement of components
+	 * @param previous  routing of a similar placement, can be null
+	 * @param changed   if not null, gets routes that aren't taken from previous routing
+	 * @return routes[from component][to component] or null if routing wasn't found
+	 */
+	public IntIntObjMatrix<Route> findRelaxedRouting(Placement placement, IntIntObjMatrix<Route> previous,
+	                                                 List<Route> changed) {
+		return findRouting(placement, previous, changed);
+	}
 }
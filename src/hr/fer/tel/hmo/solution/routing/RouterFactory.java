@@ -0,0 +1,54 @@
+package hr.fer.tel.hmo.solution.routing;
+
+import hr.fer.tel.hmo.network.Topology;
+
+/**
+ * Creates routers for a topology.
+ * Routers keep mutable state while routing so they must never be shared between threads,
+ * every worker should ask the factory for its own instance.
+ */
+@FunctionalInterface
+public interface RouterFactory {
+
+	RouterFactory GREEDY = GreedyRouter::new;
+
+	RouterFactory ANT_COLONY = AntColonyRouter::new;
+
+	/**
+	 * Ant colony with many ants per iteration that walk in parallel
+	 */
+	RouterFactory PARALLEL_ANT_COLONY = t -> new AntColonyRouter(t, AntColonyRouter.PARALLEL_ANTS, true);
+
+	/**
+	 * Resource constrained shortest path, fastest of the routers
+	 */
+	RouterFactory SHORTEST_PATH = ShortestPathRouter::new;
+
+	RouterFactory DEFAULT = SHORTEST_PATH;
+
+	/**
+	 * @param topology topology, only read by the router
+	 * @return new router
+	 */
+	Router create(Topology topology);
+
+	/**
+	 * @param name greedy, ant-colony, parallel-ant-colony or shortest-path
+	 * @return factory with given name
+	 */
+	static RouterFactory byName(String name) {
+		switch (name) {
+			case "greedy":
+				return GREEDY;
+			case "ant-colony":
+				return ANT_COLONY;
+			case "parallel-ant-colony":
+				return PARALLEL_ANT_COLONY;
+			case "shortest-path":
+				return SHORTEST_PATH;
+			default:
+				throw new IllegalArgumentException("Unknown router " + name
+						+ ", expecting greedy, ant-colony, parallel-ant-colony or shortest-path");
+		}
+	}
+}
@@ -1,11 +1,12 @@
 package hr.fer.tel.hmo.solution.routing;
 
-import hr.fer.tel.hmo.network.Link;
+import hr.fer.tel.hmo.network.Distances;
+import hr.fer.tel.hmo.network.Network;
 import hr.fer.tel.hmo.network.Topology;
 import hr.fer.tel.hmo.solution.placement.Placement;
 import hr.fer.tel.hmo.solution.proxies.LinkProxy;
 import hr.fer.tel.hmo.solution.proxies.NodeProxy;
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
 import hr.fer.tel.hmo.util.Util;
 import hr.fer.tel.hmo.vnf.ServiceChain;
 
@@ -13,44 +14,61 @@ import java.util.*;
 import java.util.function.Function;
 
 /**
- * Router that finds routes sequentially
+ * Router that finds routes sequentially.
+ * Node and link proxies are reset for every routing, so an instance is confined to one thread.
+ * <p>
+ * Subclasses only search for routes, every found route is committed to a {@link LinkLedger}
+ * which takes its bandwidth, so all routers see the same residual bandwidth.
+ * <p>
+ * Routes found earlier are remembered in a {@link RouteCache} and reused when they still fit,
+ * so only pairs whose components moved need a new search.
  */
 public abstract class SequentialRouter extends Router {
 
 	private final Topology topology;
 
-	NodeProxy[] nodes;
-	Matrix<NodeProxy, NodeProxy, LinkProxy> neighbors;
+	final Network network;
 
-	SequentialRouter(Topology topology) {
-		this.topology = topology;
-	}
+	/**
+	 * Minimal delays between nodes, used to prune routes that can't reach the end in time
+	 */
+	final Distances distances;
 
-	private void initialize() {
+	/**
+	 * Residual bandwidth and used nodes and links of current routing
+	 */
+	private final LinkLedger ledger;
 
-		int numNodes = topology.getNetwork().getNumberOfNodes();
-		nodes = new NodeProxy[numNodes];
-		for (int i = 0; i < numNodes; i++) {
-			nodes[i] = new NodeProxy(topology.getNetwork().getNode(i));
-		}
+	final NodeProxy[] nodes;
 
-		// create neighbors
-		// node -> list of links which go out of it
-		Matrix<Integer, Integer, Link> links = topology.getNetwork().getLinks();
-
-		neighbors = new Matrix<>();
-		for (int n1 : links.keys()) {
-			links.getFor(n1).entrySet().forEach(e -> neighbors.put(
-					nodes[n1],
-					nodes[e.getKey()],
-					new LinkProxy(nodes[e.getKey()], e.getValue()))
-			);
-		}
+	/**
+	 * links[link id] = proxy, outgoing links of a node are found through network's adjacency
+	 */
+	final LinkProxy[] links;
+
+	/**
+	 * Routes found so far between pairs of nodes
+	 */
+	private final RouteCache cache;
+
+	/**
+	 * True while routing with relaxed limits
+	 */
+	private boolean relaxed;
 
+	SequentialRouter(Topology topology) {
+		this.topology = topology;
+		this.network = topology.getNetwork();
+		this.distances = topology.getDistances();
+		this.cache = new RouteCache();
+		this.ledger = new LinkLedger(network);
+		this.nodes = ledger.nodes;
+		this.links = ledger.links;
 	}
 
 	/**
-	 * Find a route that goes from one node to other with given demands
+	 * Find a route that goes from one node to other with given demands.
+	 * Proxies are only read, found route is committed by the caller.
 	 *
 	 * @param from      start node
 	 * @param end       end node
@@ -60,12 +78,62 @@ public abstract class SequentialRouter extends Router {
 	 */
 	protected abstract List<Integer> path(NodeProxy from, NodeProxy end, double delay, double bandwidth);
 
+	/**
+	 * @param route nodes on route
+	 * @return total delay of route
+	 */
+	private double delay(int[] route) {
+		double delay = 0.0;
+		for (int i = 1; i < route.length; i++) {
+			delay += network.getLinkDelay(network.getLinkId(route[i - 1], route[i]));
+		}
+		return delay;
+	}
+
 	@Override
-	public Matrix<Integer, Integer, Route> findRouting(Placement placement) {
+	public IntIntObjMatrix<Route> findRouting(Placement placement) {
+		return findRouting(placement, null);
+	}
 
-		initialize();
+	@Override
+	public IntIntObjMatrix<Route> findRouting(Placement placement, IntIntObjMatrix<Route> previous,
+	                                          List<Route> changed) {
+		ledger.reset();
+		IntIntObjMatrix<Route> routes = route(placement, previous, changed);
+		if (routes == null && previous != null) {
+			// kept routes can block the ones that have to be found, release everything and try from scratch
+			ledger.rollback();
+			routes = route(placement, null, changed);
+		}
+		return routes;
+	}
 
-		final Matrix<Integer, Integer, Route> routes = new Matrix<>();
+	@Override
+	public IntIntObjMatrix<Route> findRelaxedRouting(Placement placement, IntIntObjMatrix<Route> previous,
+	                                                 List<Route> changed) {
+		ledger.reset();
+		relaxed = true;
+		try {
+			return route(placement, previous, changed);
+		} finally {
+			relaxed = false;
+		}
+	}
+
+	/**
+	 * Route all pairs, every route is committed to the ledger
+	 *
+	 * @param placement placement
+	 * @param previous  routes that are kept if they still fit, can be null
+	 * @param changed   if not null, gets routes that aren't kept from previous
+	 * @return routes or null if a pair can't be routed, with relaxed limits only if its nodes aren't connected
+	 */
+	private IntIntObjMatrix<Route> route(Placement placement, IntIntObjMatrix<Route> previous, List<Route> changed) {
+		if (changed != null) {
+			changed.clear();
+		}
+
+		final IntIntObjMatrix<Route> routes = new IntIntObjMatrix<>();
 
 		// create cache
 		// cache[component index] = node index (component -> server -> node)
@@ -80,18 +148,67 @@ public abstract class SequentialRouter extends Router {
 			CACHE[i] = nodeIdx.apply(i);
 		}
 
+		// every chain has a delay budget, a pair can use what is left of it after
+		// minimal delays of pairs that aren't routed yet are reserved
+		List<ServiceChain> chains = topology.getServiceChains();
+		double[] remaining = new double[chains.size()];
+		double[] reserved = new double[chains.size()];
+
 		final class tmp {
 			private int cmp1, cmp2;
-			private double delay;
+			private double minDelay;
 			private double bandwidth;
 
-			private tmp(int cmp1, int cmp2, double delay, double bandwidth) {
+			/**
+			 * Chains this pair is part of, chain is repeated if pair is in it more than once
+			 */
+			private int[] chains = new int[1];
+			private int numChains;
+
+			private tmp(int cmp1, int cmp2, double minDelay, double bandwidth) {
 				this.cmp1 = cmp1;
 				this.cmp2 = cmp2;
-				this.delay = delay;
+				this.minDelay = minDelay;
 				this.bandwidth = bandwidth;
 			}
 
+			private void addChain(int chain) {
+				if (numChains == chains.length) {
+					chains = Arrays.copyOf(chains, 2 * numChains);
+				}
+				chains[numChains++] = chain;
+			}
+
+			/**
+			 * @return maximal delay of this pair so that other pairs of its chains can still make it
+			 */
+			private double delay() {
+				double delay = Double.POSITIVE_INFINITY;
+				for (int i = 0; i < numChains; i++) {
+					int c = chains[i];
+					int k = 0;
+					for (int j = 0; j < numChains; j++) {
+						if (chains[j] == c) {
+							k++;
+						}
+					}
+					delay = Math.min(delay, (remaining[c] - reserved[c]) / k + minDelay);
+				}
+				return delay;
+			}
+
+			/**
+			 * Take delay of found route from budgets of chains
+			 *
+			 * @param delay delay of route
+			 */
+			private void routed(double delay) {
+				for (int i = 0; i < numChains; i++) {
+					remaining[chains[i]] -= delay;
+					reserved[chains[i]] -= minDelay;
+				}
+			}
+
 			@Override
 			public boolean equals(Object o) {
 				if (this == o) {
@@ -114,23 +231,28 @@ public abstract class SequentialRouter extends Router {
 			}
 		}
 
-		Set<tmp> tmps = new HashSet<>();
+		// pair that is shared by chains is routed once
+		Map<tmp, tmp> tmps = new HashMap<>();
 
-		for (ServiceChain sc : topology.getServiceChains()) {
+		for (int c = 0; c < chains.size(); c++) {
+			ServiceChain sc = chains.get(c);
 
 			int ncs = sc.getNumberOfComponents();
 			if (ncs <= 1) {
 				continue;
 			}
 
-			double delay = sc.getLatency();
+			remaining[c] = sc.getLatency();
 
 			int prevCompIdx = sc.getComponent(0).getIndex();
 			for (int i = 1; i < ncs; i++) {
 				int currCompIdx = sc.getComponent(i).getIndex();
 
-				Double bandwidth = topology.getDemands().get(prevCompIdx, currCompIdx);
-				tmps.add(new tmp(prevCompIdx, currCompIdx, delay, bandwidth));
+				double minDelay = distances.minDelay(CACHE[prevCompIdx], CACHE[currCompIdx]);
+				double bandwidth = topology.getDemands().get(prevCompIdx, currCompIdx, 0.0);
+				tmp t = tmps.computeIfAbsent(new tmp(prevCompIdx, currCompIdx, minDelay, bandwidth), k -> k);
+				t.addChain(c);
+				reserved[c] += minDelay;
 
 				prevCompIdx = currCompIdx;
 
@@ -138,29 +260,77 @@ public abstract class SequentialRouter extends Router {
 		}
 
 		// randomize
-		List<tmp> tmps_ = new ArrayList<>(tmps);
-		Collections.shuffle(tmps_, Util.RANDOM);
+		List<tmp> tmps_ = new ArrayList<>(tmps.keySet());
+		Util.shuffle(tmps_);
 
+		// keep previous routes of pairs that didn't move, they take bandwidth first
+		List<tmp> moved = new ArrayList<>();
 		for (tmp t : tmps_) {
 			int node1 = CACHE[t.cmp1];
 			int node2 = CACHE[t.cmp2];
 
+			Route old = previous == null ? null : previous.get(t.cmp1, t.cmp2);
 			if (node1 == node2) {
-				routes.put(t.cmp1, t.cmp2, new Route(t.cmp1, t.cmp2, Collections.singletonList(node1)));
+				if (old == null || old.getNodes().length != 1 || old.getNodes()[0] != node1) {
+					old = new Route(t.cmp1, t.cmp2, Collections.singletonList(node1));
+					if (changed != null) {
+						changed.add(old);
+					}
+				}
+				routes.put(t.cmp1, t.cmp2, old);
+				t.routed(0.0);
 				continue;
 			}
 
-			nodes[node1].used = true;
-			nodes[node2].used = true;
+			if (old != null) {
+				int[] r = old.getNodes();
+				if (r[0] == node1 && r[r.length - 1] == node2 && ledger.fits(r, t.delay(), t.bandwidth)) {
+					ledger.commit(r, t.bandwidth);
+					routes.put(t.cmp1, t.cmp2, old);
+					t.routed(delay(r));
+					continue;
+				}
+			}
+			moved.add(t);
+		}
+
+		for (tmp t : moved) {
+			int node1 = CACHE[t.cmp1];
+			int node2 = CACHE[t.cmp2];
 
-			// Ovo je krivo, delay treba racunati drukcije jer ovak trazim rutu s max delayom
-			// koji je zapravo delay za cijeli service chain (i to neki, prvi). zabrijal sam si
-			List<Integer> r = path(nodes[node1], nodes[node2], t.delay, t.bandwidth);
+			double delay = t.delay();
+			int[] cached = cache.get(node1, node2);
+			if (cached != null && ledger.fits(cached, delay, t.bandwidth) && ledger.isFree(cached)) {
+				ledger.commit(cached, t.bandwidth);
+				Route route = new Route(t.cmp1, t.cmp2, cached);
+				routes.put(t.cmp1, t.cmp2, route);
+				if (changed != null) {
+					changed.add(route);
+				}
+				t.routed(delay(cached));
+				continue;
+			}
+
+			ledger.use(node1);
+			ledger.use(node2);
+
+			List<Integer> r = path(nodes[node1], nodes[node2], delay, t.bandwidth);
+			if (r == null && relaxed) {
+				// any route, its bandwidth is still taken so links can be overloaded
+				r = path(nodes[node1], nodes[node2], Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+			}
 			if (r == null) {
 				return null;
 			}
 
-			routes.put(t.cmp1, t.cmp2, new Route(t.cmp1, t.cmp2, r));
+			Route route = new Route(t.cmp1, t.cmp2, r);
+			ledger.commit(route.getNodes(), t.bandwidth);
+			cache.put(route.getNodes());
+			routes.put(t.cmp1, t.cmp2, route);
+			if (changed != null) {
+				changed.add(route);
+			}
+			t.routed(delay(route.getNodes()));
 		}
 		return routes;
 	}
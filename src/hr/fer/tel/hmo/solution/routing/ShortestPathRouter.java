@@ -0,0 +1,235 @@
+package hr.fer.tel.hmo.solution.routing;
+
+import hr.fer.tel.hmo.network.Topology;
+import hr.fer.tel.hmo.solution.proxies.LinkProxy;
+import hr.fer.tel.hmo.solution.proxies.NodeProxy;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Finds a route with minimal additional power that satisfies delay and bandwidth constraints.
+ * <p>
+ * This is a label setting algorithm for resource constrained shortest path.
+ * Label is a partial path (node, power, delay). Labels are taken from a priority queue by power,
+ * and a label is dropped if a label at the same node has both less power and less delay.
+ * Number of labels kept per node is limited, so result is optimal in most cases and near optimal otherwise.
+ */
+public class ShortestPathRouter extends SequentialRouter {
+
+	/**
+	 * Maximal number of non dominated labels kept at one node
+	 */
+	private static final int MAX_LABELS_PER_NODE = 8;
+
+	// label pool, labels are referenced by index
+	private int[] labelNode;
+	private int[] labelPred;
+	private int[] labelNext;
+	private double[] labelPower;
+	private double[] labelDelay;
+	private boolean[] labelDead;
+	private int numLabels;
+
+	/**
+	 * head[node] = first label at node (labels at same node are linked with labelNext), -1 if none
+	 */
+	private final int[] head;
+
+	/**
+	 * count[node] = number of labels at node
+	 */
+	private final int[] count;
+
+	/**
+	 * Binary heap of label indexes ordered by power, then delay
+	 */
+	private int[] heap;
+	private int heapSize;
+
+	ShortestPathRouter(Topology topology) {
+		super(topology);
+
+		int N = network.getNumberOfNodes();
+		head = new int[N];
+		count = new int[N];
+
+		int capacity = 4 * N;
+		labelNode = new int[capacity];
+		labelPred = new int[capacity];
+		labelNext = new int[capacity];
+		labelPower = new double[capacity];
+		labelDelay = new double[capacity];
+		labelDead = new boolean[capacity];
+		heap = new int[capacity];
+	}
+
+	@Override
+	protected List<Integer> path(NodeProxy from, NodeProxy end, double delay, double bandwidth) {
+		Arrays.fill(head, -1);
+		Arrays.fill(count, 0);
+		numLabels = 0;
+		heapSize = 0;
+
+		int goal = end.node.getIndex();
+		offer(from.node.getIndex(), -1, 0.0, 0.0);
+
+		int found = -1;
+		while (heapSize > 0) {
+			int label = poll();
+			if (labelDead[label]) {
+				continue;
+			}
+
+			int n = labelNode[label];
+			if (n == goal) {
+				// labels are taken by power, so first one at goal is the best
+				found = label;
+				break;
+			}
+
+			for (int k = network.getOutStart(n), e = network.getOutEnd(n); k < e; k++) {
+				int l = network.getOutLink(k);
+				LinkProxy lp = links[l];
+				double d = labelDelay[label] + lp.delay;
+				if (d + distances.minDelay(lp.to.node.getIndex(), goal) > delay || lp.bandwidth < bandwidth) {
+					continue;
+				}
+				offer(lp.to.node.getIndex(), label, labelPower[label] + powerUp(lp), d);
+			}
+		}
+
+		if (found < 0) {
+			return null;
+		}
+
+		LinkedList<Integer> route = new LinkedList<>();
+		for (int label = found; label >= 0; label = labelPred[label]) {
+			route.addFirst(labelNode[label]);
+		}
+
+		return route;
+	}
+
+	/**
+	 * How much will power rise if this link is added to route
+	 *
+	 * @param lp link
+	 * @return power up
+	 */
+	private double powerUp(LinkProxy lp) {
+		double power = 0.0;
+		if (!lp.used) {
+			power += network.getLinkPower(lp.index);
+		}
+		if (!lp.to.used) {
+			power += lp.to.node.getPowerConsumption();
+		}
+		return power;
+	}
+
+	/**
+	 * Create a label unless it is dominated by a label at the same node
+	 *
+	 * @param node  node
+	 * @param pred  previous label, -1 for start
+	 * @param power power of partial path
+	 * @param delay delay of partial path
+	 */
+	private void offer(int node, int pred, double power, double delay) {
+		int worst = -1;
+		for (int other = head[node]; other >= 0; other = labelNext[other]) {
+			if (labelDead[other]) {
+				continue;
+			}
+			if (labelPower[other] <= power && labelDelay[other] <= delay) {
+				return; // dominated
+			}
+			if (power <= labelPower[other] && delay <= labelDelay[other]) {
+				labelDead[other] = true; // new label dominates it
+				count[node]--;
+			} else if (worst < 0 || labelPower[other] > labelPower[worst]) {
+				worst = other;
+			}
+		}
+
+		if (count[node] >= MAX_LABELS_PER_NODE) {
+			if (labelPower[worst] <= power) {
+				return;
+			}
+			labelDead[worst] = true;
+			count[node]--;
+		}
+
+		if (numLabels == labelNode.length) {
+			grow();
+		}
+
+		int label = numLabels++;
+		labelNode[label] = node;
+		labelPred[label] = pred;
+		labelPower[label] = power;
+		labelDelay[label] = delay;
+		labelDead[label] = false;
+		labelNext[label] = head[node];
+		head[node] = label;
+		count[node]++;
+
+		push(label);
+	}
+
+	private void grow() {
+		int capacity = labelNode.length * 2;
+		labelNode = Arrays.copyOf(labelNode, capacity);
+		labelPred = Arrays.copyOf(labelPred, capacity);
+		labelNext = Arrays.copyOf(labelNext, capacity);
+		labelPower = Arrays.copyOf(labelPower, capacity);
+		labelDelay = Arrays.copyOf(labelDelay, capacity);
+		labelDead = Arrays.copyOf(labelDead, capacity);
+		heap = Arrays.copyOf(heap, capacity);
+	}
+
+	/**
+	 * @return true if label a should be taken before label b
+	 */
+	private boolean before(int a, int b) {
+		int c = Double.compare(labelPower[a], labelPower[b]);
+		return c < 0 || c == 0 && labelDelay[a] < labelDelay[b];
+	}
+
+	private void push(int label) {
+		int i = heapSize++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!before(label, heap[parent])) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = label;
+	}
+
+	private int poll() {
+		int top = heap[0];
+		int last = heap[--heapSize];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!before(heap[child], last)) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return top;
+	}
+}
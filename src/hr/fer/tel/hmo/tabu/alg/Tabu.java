@@ -1,5 +1,7 @@
 package hr.fer.tel.hmo.tabu.alg;
 
+import hr.fer.tel.hmo.util.Telemetry;
+
 import java.util.Collection;
 
 /**
@@ -8,12 +10,14 @@ import java.util.Collection;
 public class Tabu {
 
 	/**
-	 * Perform a search and return best found solution
+	 * Perform a search and return best found solution.
+	 * Search can move through infeasible solutions, but only a feasible one becomes the best.
 	 *
 	 * @param problem search will be performed on this problem
 	 * @return best found solution
 	 */
 	public static <S> S search(TabuProblem<S> problem) {
+		long start = Telemetry.start();
 		S curr = problem.initial();
 		S best = curr;
 
@@ -28,12 +32,15 @@ public class Tabu {
 			if (curr == null) {
 				break;
 			}
-			if (problem.isBetter(curr, best)) {
+			if (problem.isFeasible(curr) && problem.isBetter(curr, best)) {
 				best = curr;
 			}
 			problem.update(curr, best);
+			Telemetry.count(Telemetry.Counter.ITERATIONS);
 		} while (!problem.stop(best));
 
+		Telemetry.stop(Telemetry.Phase.SEARCH, start);
+
 		return best;
 	}
 
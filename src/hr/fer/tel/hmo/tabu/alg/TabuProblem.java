@@ -20,6 +20,16 @@ public interface TabuProblem<S> {
 	 */
 	boolean isBetter(S s1, S s2);
 
+	/**
+	 * Only feasible solutions can become the best one, search can still go through others
+	 *
+	 * @param s solution
+	 * @return true if solution satisfies all constraints
+	 */
+	default boolean isFeasible(S s) {
+		return true;
+	}
+
 	/**
 	 * @param curr current solution
 	 * @return neighbors of current solution
@@ -0,0 +1,76 @@
+package hr.fer.tel.hmo.tabu.impl;
+
+import hr.fer.tel.hmo.util.Rng;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Best solutions found by all searches, used to share what one search learned with others.
+ * <p>
+ * Pool has a fixed number of slots which are only changed with compare and set,
+ * so searches never wait for each other. A new solution replaces the worst one in the pool.
+ */
+public class ElitePool {
+
+	private final AtomicReferenceArray<RoutingSolution> slots;
+
+	/**
+	 * @param size maximal number of solutions in the pool
+	 */
+	public ElitePool(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Elite pool size has to be positive: " + size);
+		}
+		slots = new AtomicReferenceArray<>(size);
+	}
+
+	/**
+	 * Put solution in the pool if it is better than the worst one there
+	 *
+	 * @param rs solution
+	 * @return true if solution was added
+	 */
+	public boolean offer(RoutingSolution rs) {
+		while (true) {
+			int worst = -1;
+			RoutingSolution worstRS = null;
+			for (int i = 0; i < slots.length(); i++) {
+				RoutingSolution curr = slots.get(i);
+				if (curr == null) {
+					worst = i;
+					worstRS = null;
+					break;
+				}
+				if (Double.compare(curr.getFitness(), rs.getFitness()) == 0) {
+					return false; // same solution is already in the pool
+				}
+				if (worstRS == null || worstRS.isBetterThan(curr)) {
+					worst = i;
+					worstRS = curr;
+				}
+			}
+			if (worstRS != null && !rs.isBetterThan(worstRS)) {
+				return false;
+			}
+			if (slots.compareAndSet(worst, worstRS, rs)) {
+				return true;
+			}
+			// other search changed the slot, look again
+		}
+	}
+
+	/**
+	 * @return random solution from the pool, null if pool is empty
+	 */
+	public RoutingSolution pick() {
+		int n = slots.length();
+		int start = Rng.current().nextInt(n);
+		for (int i = 0; i < n; i++) {
+			RoutingSolution rs = slots.get((start + i) % n);
+			if (rs != null) {
+				return rs;
+			}
+		}
+		return null;
+	}
+}
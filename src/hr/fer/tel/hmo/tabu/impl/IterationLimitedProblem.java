@@ -1,28 +1,38 @@
 package hr.fer.tel.hmo.tabu.impl;
 
 import hr.fer.tel.hmo.tabu.alg.TabuProblem;
+import hr.fer.tel.hmo.util.Deadline;
 
 /**
  * Iteration limited tabu problem.
- * Tabu search runs for a given number of iterations
+ * Tabu search runs for a given number of iterations or until deadline passes
  */
 abstract class IterationLimitedProblem<S> implements TabuProblem<S> {
 
 	private int iteration;
 	private final int maxIterations;
+	private final Deadline deadline;
 
-	IterationLimitedProblem(int maxIterations) {
+	IterationLimitedProblem(int maxIterations, Deadline deadline) {
 		this.maxIterations = maxIterations;
+		this.deadline = deadline;
 		iteration = 0;
 	}
 
 	@Override
 	public boolean stop(S best) {
-		return iteration >= maxIterations;
+		return iteration >= maxIterations || deadline.isExpired();
 	}
 
 	@Override
 	public void update(S curr, S best) {
 		++iteration;
 	}
+
+	/**
+	 * @return number of finished iterations
+	 */
+	int getIteration() {
+		return iteration;
+	}
 }
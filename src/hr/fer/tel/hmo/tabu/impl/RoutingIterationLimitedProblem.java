@@ -2,7 +2,7 @@ package hr.fer.tel.hmo.tabu.impl;
 
 import hr.fer.tel.hmo.solution.Evaluator;
 import hr.fer.tel.hmo.solution.Solution;
-import hr.fer.tel.hmo.solution.routing.Router;
+import hr.fer.tel.hmo.util.Deadline;
 
 /**
  * Tabu problem that is iteration limited and knows how to compare solutions.
@@ -15,13 +15,11 @@ public abstract class RoutingIterationLimitedProblem extends IterationLimitedPro
 	private static final int MAX_ITERATIONS = 1000;
 
 	final Evaluator evaluator;
-	final Router router;
 	private final RoutingSolution initial;
 
-	RoutingIterationLimitedProblem(Evaluator evaluator, Router router, Solution initial) {
-		super(MAX_ITERATIONS);
+	RoutingIterationLimitedProblem(Evaluator evaluator, Solution initial, Deadline deadline) {
+		super(MAX_ITERATIONS, deadline);
 		this.evaluator = evaluator;
-		this.router = router;
 		this.initial = toRS(initial);
 	}
 
@@ -35,6 +33,11 @@ public abstract class RoutingIterationLimitedProblem extends IterationLimitedPro
 		return s1 != null && s1.isBetterThan(s2);
 	}
 
+	@Override
+	public boolean isFeasible(RoutingSolution s) {
+		return s.isFeasible();
+	}
+
 	/**
 	 * @param solution solution
 	 * @return wrapped solution
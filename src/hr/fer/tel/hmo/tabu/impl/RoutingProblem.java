@@ -1,61 +1,328 @@
 package hr.fer.tel.hmo.tabu.impl;
 
+import hr.fer.tel.hmo.network.Topology;
+import hr.fer.tel.hmo.solution.CapacityLedger;
 import hr.fer.tel.hmo.solution.Evaluator;
+import hr.fer.tel.hmo.solution.IncrementalEvaluator;
+import hr.fer.tel.hmo.solution.Penalties;
 import hr.fer.tel.hmo.solution.Solution;
 import hr.fer.tel.hmo.solution.placement.Placement;
 import hr.fer.tel.hmo.solution.routing.Route;
 import hr.fer.tel.hmo.solution.routing.Router;
-import hr.fer.tel.hmo.util.Matrix;
+import hr.fer.tel.hmo.solution.routing.RouterFactory;
+import hr.fer.tel.hmo.util.Deadline;
+import hr.fer.tel.hmo.util.IntIntObjMatrix;
+import hr.fer.tel.hmo.util.Rng;
+import hr.fer.tel.hmo.util.Telemetry;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
- * Simple routing problem, doesn't have any tabu elements
+ * Routing problem whose neighbors move components to other servers.
+ * Moving a component back to a server it recently left is tabu, unless it gives a new best solution.
+ * <p>
+ * In penalty mode invalid neighbors aren't dropped, they are routed with relaxed limits and their
+ * fitness is lowered by adaptive {@link Penalties}, so search can go through invalid solutions.
+ * <p>
+ * Neighbors are independent, so they can be created in parallel on the common fork join pool.
+ * They are split between scouts which have their own router, capacity ledger and incremental evaluator,
+ * scout j always creates neighbors j, j + scouts, ... so result doesn't depend on thread timing.
+ * <p>
+ * Searches can be islands that share an {@link ElitePool}: every few iterations an island offers its best
+ * solution and, if the pool has a better one, adds it to next neighborhood where it competes with other neighbors.
  */
 public class RoutingProblem extends RoutingIterationLimitedProblem {
 
-	private Set<RoutingSolution> dontUseFirst;
-	private Set<RoutingSolution> dontUseSecond;
+	/**
+	 * Number of iterations a component can't go back to a server it left, can be changed with -Dhmo.tabu.tenure=N
+	 */
+	private static final int TENURE = Integer.getInteger("hmo.tabu.tenure", 10);
+
+	/**
+	 * Number of neighbors created in every iteration, can be changed with -Dhmo.neighbors=N
+	 */
+	public static final int NEIGHBORS = Integer.getInteger("hmo.neighbors", 16);
+
+	/**
+	 * Number of components shuffled in a neighbor
+	 */
+	private static final int SHUFFLED = 6;
+
+	/**
+	 * Keep invalid neighbors with penalties instead of dropping them, can be turned on with -Dhmo.penalty=true
+	 */
+	private static final boolean PENALTY = Boolean.getBoolean("hmo.penalty");
+
+	private final TabuMemory memory;
+
+	/**
+	 * Weights of violations, null if penalty mode is off
+	 */
+	private final Penalties penalties;
+
+	/**
+	 * Create neighbors, each one is used by one thread at a time
+	 */
+	private final Scout[] scouts;
+
+	/**
+	 * Number of neighbors in every iteration
+	 */
+	private final int size;
+
+	/**
+	 * Placement neighbors were last created from
+	 */
+	private Placement last;
+
+	/**
+	 * Fitness of best solution found so far, used for aspiration
+	 */
+	private double bestFitness;
+
+	/**
+	 * Pool shared with other islands, null if search is alone
+	 */
+	private ElitePool elite;
+
+	/**
+	 * Number of iterations between exchanges with elite pool
+	 */
+	private int migration;
+
+	/**
+	 * Elite solution that is added to next neighborhood, null if there is none
+	 */
+	private RoutingSolution immigrant;
 
 	public RoutingProblem(Evaluator evaluator, Router router, Solution initial) {
-		super(evaluator, router, initial);
-		dontUseFirst = new HashSet<>();
-		dontUseSecond = new HashSet<>();
+		this(evaluator, router, initial, Deadline.NONE);
+	}
+
+	/**
+	 * @param deadline search stops when it passes, even if there are iterations left
+	 */
+	public RoutingProblem(Evaluator evaluator, Router router, Solution initial, Deadline deadline) {
+		this(evaluator, initial, deadline, NEIGHBORS, new Scout[]{new Scout(evaluator, router)});
+	}
+
+	/**
+	 * Problem whose neighbors are created in parallel
+	 *
+	 * @param routers   creates a router for every scout, there is one scout for every thread of common pool
+	 * @param neighbors number of neighbors in every iteration
+	 */
+	public RoutingProblem(Evaluator evaluator, RouterFactory routers, Solution initial, Deadline deadline, int neighbors) {
+		this(evaluator, initial, deadline, neighbors, IntStream
+				.range(0, Math.max(1, Math.min(neighbors, ForkJoinPool.getCommonPoolParallelism())))
+				.mapToObj(i -> new Scout(evaluator, routers.create(evaluator.getTopology())))
+				.toArray(Scout[]::new)
+		);
+	}
+
+	private RoutingProblem(Evaluator evaluator, Solution initial, Deadline deadline, int neighbors, Scout[] scouts) {
+		super(evaluator, initial, deadline);
+		if (neighbors < 1) {
+			throw new IllegalArgumentException("Number of neighbors has to be positive: " + neighbors);
+		}
+		Topology t = evaluator.getTopology();
+		memory = new TabuMemory(t.getComponents().length, t.getNetwork().getNumberOfServers(), TENURE);
+		bestFitness = initial().getFitness();
+		// a violation of 100% costs as much as whole initial solution, weights adapt from there
+		penalties = PENALTY ? new Penalties(-bestFitness) : null;
+		this.size = neighbors;
+		this.scouts = scouts;
+	}
+
+	/**
+	 * Make this search an island that exchanges best solutions with others during search
+	 *
+	 * @param elite     pool shared by islands
+	 * @param migration number of iterations between exchanges
+	 */
+	public void setElite(ElitePool elite, int migration) {
+		if (migration < 1) {
+			throw new IllegalArgumentException("Migration interval has to be positive: " + migration);
+		}
+		this.elite = elite;
+		this.migration = migration;
 	}
 
 	@Override
 	public Collection<RoutingSolution> neighborhood(RoutingSolution curr) {
+		long start = Telemetry.start();
 
-		Set<RoutingSolution> neighbors = new HashSet<>();
+		last = curr.getSolution().getPlacement();
 
-		final int N = 16;
-		for (int i = 0; i < N; i++) {
+		// every candidate has its own random stream, so parallel neighborhood is the same as sequential
+		SplittableRandom random = Rng.current();
+		SplittableRandom[] streams = new SplittableRandom[size];
+		for (int i = 0; i < size; i++) {
+			streams[i] = random.split();
+		}
 
-			Placement p = curr.getSolution().getPlacement().neighbor(6);
-			if (!evaluator.isValid(p)) {
-				continue;
+		RoutingSolution[] candidates = new RoutingSolution[size];
+		IntStream is = IntStream.range(0, scouts.length);
+		(scouts.length > 1 ? is.parallel() : is).forEach(j -> {
+			SplittableRandom prev = Rng.current();
+			for (int i = j; i < size; i += scouts.length) {
+				Rng.bind(streams[i]);
+				candidates[i] = scouts[j].candidate(curr, penalties);
 			}
+			Rng.bind(prev);
+		});
 
-			Matrix<Integer, Integer, Route> rts = router.findRouting(p);
-			if (rts == null) {
+		// lists keep candidate order, so ties are broken the same way in every run
+		List<RoutingSolution> neighbors = new ArrayList<>();
+		List<RoutingSolution> tabu = new ArrayList<>();
+		for (RoutingSolution rs : candidates) {
+			if (rs == null) {
 				continue;
 			}
-
-			RoutingSolution rs = toRS(new Solution(p, rts));
-			// filter neighbors based on tabu list
-			if (dontUseFirst.contains(rs) || dontUseSecond.contains(rs)) {
+			// tabu moves are allowed only if they give a new best solution or get back to valid ones (aspiration)
+			boolean aspiration = rs.isFeasible() && (rs.getFitness() > bestFitness || !curr.isFeasible());
+			Placement p = rs.getSolution().getPlacement();
+			if (!aspiration && memory.isTabu(last, p, p.getShuffled())) {
+				Telemetry.count(Telemetry.Counter.TABU_REJECTED);
+				tabu.add(rs);
 				continue;
 			}
 			neighbors.add(rs);
 		}
 
+		// every neighbor is tabu, take them anyway so search doesn't stop (aspiration by default)
+		if (neighbors.isEmpty()) {
+			neighbors = tabu;
+		}
+
+		// elite from other islands isn't a move of this search, so it is never tabu
+		if (immigrant != null) {
+			neighbors.add(immigrant);
+			immigrant = null;
+		}
 
-		dontUseSecond = dontUseFirst;
-		dontUseFirst = neighbors;
+		Telemetry.stop(Telemetry.Phase.NEIGHBORHOOD, start);
 
 		return neighbors;
 	}
 
+	@Override
+	public void update(RoutingSolution curr, RoutingSolution best) {
+		super.update(curr, best);
+		// only shuffled components moved if current solution is a neighbor of last one, an immigrant can be anything
+		IncrementalEvaluator.Change change = curr.getChange();
+		Placement p = curr.getSolution().getPlacement();
+		boolean neighbor = change != null && change.getBase().getPlacement() == last;
+		memory.move(last, p, neighbor ? p.getShuffled() : null);
+		bestFitness = best.getFitness();
+		if (penalties != null) {
+			penalties.update(curr.getViolations());
+		}
+		if (elite != null && getIteration() % migration == 0) {
+			elite.offer(best);
+			RoutingSolution rs = elite.pick();
+			if (rs != null && rs.isBetterThan(best)) {
+				immigrant = rs;
+				Telemetry.count(Telemetry.Counter.MIGRATIONS);
+			}
+		}
+	}
+
+	/**
+	 * Creates neighbors of a solution, used by one thread at a time
+	 */
+	private static class Scout {
+
+		private final Evaluator evaluator;
+		private final Router router;
+
+		/**
+		 * Prices neighbors by their difference from current solution
+		 */
+		private final IncrementalEvaluator delta;
+
+		/**
+		 * Checks server capacities of neighbors by their difference from current solution
+		 */
+		private final CapacityLedger ledger;
+
+		Scout(Evaluator evaluator, Router router) {
+			this.evaluator = evaluator;
+			this.router = router;
+			delta = new IncrementalEvaluator(evaluator.getTopology());
+			ledger = new CapacityLedger(evaluator.getTopology());
+		}
+
+		/**
+		 * @param curr      current solution
+		 * @param penalties weights of violations, null if invalid neighbors are dropped
+		 * @return random neighbor of current solution or null if it isn't valid (or can't be routed at all)
+		 */
+		RoutingSolution candidate(RoutingSolution curr, Penalties penalties) {
+			Solution s = curr.getSolution();
+			if (delta.getCurrent() == null) {
+				delta.reset(s);
+			} else if (delta.getCurrent() != s) {
+				IncrementalEvaluator.Change change = curr.getChange();
+				if (change != null && change.getBase() == delta.getCurrent()) {
+					delta.move(change);
+				} else {
+					delta.move(s);
+				}
+			}
+			if (ledger.getCurrent() == null) {
+				ledger.reset(s.getPlacement());
+			} else if (ledger.getCurrent() != s.getPlacement()) {
+				// current solution is usually a neighbor of bound placement, then only its shuffled components moved
+				IncrementalEvaluator.Change change = curr.getChange();
+				boolean neighbor = change != null && change.getBase().getPlacement() == ledger.getCurrent();
+				ledger.moveTo(s.getPlacement(), neighbor ? s.getPlacement().getShuffled() : null);
+			}
+
+			Placement p = s.getPlacement().neighbor(SHUFFLED);
+			Telemetry.count(Telemetry.Counter.NEIGHBORS);
+			// ledger only checks components that moved, so it can't be used while current placement is overloaded
+			boolean valid = (curr.isFeasible() ? ledger.isValid(p, p.getShuffled()) : evaluator.isValid(p))
+					&& evaluator.isLatencyFeasible(p);
+			if (!valid) {
+				Telemetry.count(Telemetry.Counter.INVALID_PLACEMENTS);
+				if (penalties == null) {
+					return null;
+				}
+			}
+
+			long routing = Telemetry.start();
+			List<Route> changed = new ArrayList<>();
+			IntIntObjMatrix<Route> rts = valid ? router.findRouting(p, s.getRoutes(), changed) : null;
+			if (rts == null && valid) {
+				Telemetry.count(Telemetry.Counter.ROUTING_FAILURES);
+			}
+			boolean relaxed = rts == null && penalties != null;
+			if (relaxed) {
+				rts = router.findRelaxedRouting(p, s.getRoutes(), changed);
+			}
+			Telemetry.stop(Telemetry.Phase.ROUTING, routing);
+			if (rts == null) {
+				return null;
+			}
+
+			Solution n = new Solution(p, rts);
+			long evaluation = Telemetry.start();
+			IncrementalEvaluator.Change change = new IncrementalEvaluator.Change(s, n, p.getShuffled(), changed);
+			double power = delta.price(change);
+			double[] violations = relaxed ? evaluator.violations(n) : null;
+			double fitness = -power - (relaxed ? penalties.penalty(violations) : 0.0);
+			RoutingSolution rs = new RoutingSolution(n, fitness, violations, change);
+			Telemetry.stop(Telemetry.Phase.EVALUATION, evaluation);
+			if (!rs.isFeasible()) {
+				Telemetry.count(Telemetry.Counter.PENALIZED);
+			}
+			return rs;
+		}
+	}
 }
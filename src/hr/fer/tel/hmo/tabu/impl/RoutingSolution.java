@@ -1,10 +1,12 @@
 package hr.fer.tel.hmo.tabu.impl;
 
+import hr.fer.tel.hmo.solution.IncrementalEvaluator;
+import hr.fer.tel.hmo.solution.Penalties;
 import hr.fer.tel.hmo.solution.Solution;
 
 /**
- * This class should only contain valid solutions.
- * It has cached fitness so it's not calculated twice (or more)
+ * Solution with cached fitness so it's not calculated twice (or more).
+ * In penalty mode it can be invalid, then fitness includes penalties for its violations.
  */
 public class RoutingSolution {
 
@@ -12,9 +14,29 @@ public class RoutingSolution {
 
 	private final Solution solution;
 
-	RoutingSolution(Solution solution, double fitness) {
+	/**
+	 * Violations indexed by {@link Penalties.Violation#ordinal()}, null if solution is valid
+	 */
+	private final double[] violations;
+
+	/**
+	 * Change from solution this neighbor was made from, null if it isn't known
+	 */
+	private final IncrementalEvaluator.Change change;
+
+	/**
+	 * @param solution valid solution
+	 * @param fitness  fitness of solution
+	 */
+	public RoutingSolution(Solution solution, double fitness) {
+		this(solution, fitness, null, null);
+	}
+
+	RoutingSolution(Solution solution, double fitness, double[] violations, IncrementalEvaluator.Change change) {
 		this.fitness = fitness;
 		this.solution = solution;
+		this.violations = Penalties.isFeasible(violations) ? null : violations;
+		this.change = change;
 	}
 
 	public boolean isBetterThan(RoutingSolution other) {
@@ -29,6 +51,27 @@ public class RoutingSolution {
 		return solution;
 	}
 
+	/**
+	 * @return true if solution doesn't violate any constraint
+	 */
+	public boolean isFeasible() {
+		return violations == null;
+	}
+
+	/**
+	 * @return violations indexed by {@link Penalties.Violation#ordinal()}, null if solution is valid
+	 */
+	double[] getViolations() {
+		return violations;
+	}
+
+	/**
+	 * @return change from solution this neighbor was made from, null if it isn't known
+	 */
+	IncrementalEvaluator.Change getChange() {
+		return change;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
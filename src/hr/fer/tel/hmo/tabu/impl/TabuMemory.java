@@ -0,0 +1,81 @@
+package hr.fer.tel.hmo.tabu.impl;
+
+import hr.fer.tel.hmo.solution.placement.Placement;
+
+/**
+ * Tabu list over move attributes.
+ * <p>
+ * When a component is moved away from a server, putting it back on that server
+ * is tabu for the next tenure iterations. Expiration iteration of every (component, server)
+ * pair is kept in an array, so checking a move is one array read.
+ * Caller can say which components can be on other servers (e.g. {@link Placement#getShuffled()}),
+ * then only those are checked, otherwise all components are.
+ */
+class TabuMemory {
+
+	/**
+	 * until[c][s] = first iteration in which component c can be placed on server s again
+	 */
+	private final int[][] until;
+
+	/**
+	 * Number of iterations a move stays tabu
+	 */
+	private final int tenure;
+
+	private int iteration;
+
+	TabuMemory(int numberOfComponents, int numberOfServers, int tenure) {
+		if (tenure < 0) {
+			throw new IllegalArgumentException("Tenure can't be negative: " + tenure);
+		}
+		until = new int[numberOfComponents][numberOfServers];
+		this.tenure = tenure;
+		iteration = 0;
+	}
+
+	/**
+	 * @param c component
+	 * @param s server
+	 * @return true if placing component on server is tabu
+	 */
+	boolean isTabu(int c, int s) {
+		return until[c][s] > iteration;
+	}
+
+	/**
+	 * @param from  current placement
+	 * @param to    neighbor placement
+	 * @param moved components that can be on other servers in neighbor, null for all
+	 * @return true if any component is moved to a server which is tabu for it
+	 */
+	boolean isTabu(Placement from, Placement to, int[] moved) {
+		for (int i = 0, e = moved == null ? until.length : moved.length; i < e; i++) {
+			int c = moved == null ? i : moved[i];
+			int s = to.getPlacementFor(c);
+			if (s != from.getPlacementFor(c) && isTabu(c, s)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Record move from one placement to other and start next iteration.
+	 * Components that moved can't go back to their old servers for tenure iterations.
+	 *
+	 * @param from  placement before the move
+	 * @param to    placement after the move
+	 * @param moved components that can be on other servers after the move, null for all
+	 */
+	void move(Placement from, Placement to, int[] moved) {
+		++iteration;
+		for (int i = 0, e = moved == null ? until.length : moved.length; i < e; i++) {
+			int c = moved == null ? i : moved[i];
+			int s = from.getPlacementFor(c);
+			if (s != to.getPlacementFor(c)) {
+				until[c][s] = iteration + tenure;
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package hr.fer.tel.hmo.util;
+
+/**
+ * Point in time after which work should stop, measured with {@link System#nanoTime()}
+ */
+public class Deadline {
+
+	/**
+	 * Deadline that never expires
+	 */
+	public static final Deadline NONE = new Deadline(0L, false);
+
+	private final long end;
+	private final boolean limited;
+
+	private Deadline(long end, boolean limited) {
+		this.end = end;
+		this.limited = limited;
+	}
+
+	/**
+	 * @param nanos time from now
+	 * @return deadline that expires after given time
+	 */
+	public static Deadline after(long nanos) {
+		return new Deadline(System.nanoTime() + nanos, true);
+	}
+
+	/**
+	 * @return true if deadline has passed
+	 */
+	public boolean isExpired() {
+		return limited && System.nanoTime() - end >= 0;
+	}
+
+	/**
+	 * @return nanoseconds until deadline, 0 if it has passed, Long.MAX_VALUE if it never expires
+	 */
+	public long remaining() {
+		return limited ? Math.max(0L, end - System.nanoTime()) : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Parse a duration like 500ms, 30s, 5m or 1h
+	 *
+	 * @param text duration
+	 * @return duration in nanoseconds
+	 */
+	public static long parse(String text) {
+		String t = text.trim();
+		int i = 0;
+		while (i < t.length() && Character.isDigit(t.charAt(i))) {
+			i++;
+		}
+		if (i == 0) {
+			throw new IllegalArgumentException("Invalid duration: " + text);
+		}
+		long value = Long.parseLong(t.substring(0, i));
+		switch (t.substring(i)) {
+			case "ms":
+				return value * 1_000_000L;
+			case "":
+			case "s":
+				return value * 1_000_000_000L;
+			case "m":
+				return value * 60_000_000_000L;
+			case "h":
+				return value * 3_600_000_000_000L;
+			default:
+				throw new IllegalArgumentException("Invalid duration unit: " + text);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package hr.fer.tel.hmo.util;
+
+/**
+ * Matrix of doubles keyed by a pair of ints, nothing is boxed.
+ */
+public class IntIntDoubleMatrix extends IntIntHash {
+
+	/**
+	 * Consumer of one matrix cell
+	 */
+	@FunctionalInterface
+	public interface CellConsumer {
+		void accept(int k1, int k2, double v);
+	}
+
+	private double[] values;
+
+	public IntIntDoubleMatrix() {
+		this(16);
+	}
+
+	/**
+	 * @param expected expected number of values
+	 */
+	public IntIntDoubleMatrix(int expected) {
+		super(expected);
+		values = new double[keys.length];
+	}
+
+	/**
+	 * Put value into matrix under matrix[k1][k2]
+	 *
+	 * @param k1 key 1
+	 * @param k2 key 2
+	 * @param v  value
+	 */
+	public void put(int k1, int k2, double v) {
+		// claim can grow the table, so values must be read after it
+		int i = claim(k1, k2);
+		values[i] = v;
+	}
+
+	/**
+	 * Get value stored at matrix[k1][k2]
+	 *
+	 * @param k1           key 1
+	 * @param k2           key 2
+	 * @param defaultValue returned if there is no value
+	 * @return value or defaultValue if none
+	 */
+	public double get(int k1, int k2, double defaultValue) {
+		int i = find(k1, k2);
+		return i < 0 ? defaultValue : values[i];
+	}
+
+	/**
+	 * @param consumer called for every stored value
+	 */
+	public void forEach(CellConsumer consumer) {
+		for (int i = 0; i < keys.length; i++) {
+			long key = keys[i];
+			if (key != EMPTY) {
+				consumer.accept(k1(key), k2(key), values[i]);
+			}
+		}
+	}
+
+	@Override
+	void moveValues(int capacity, int[] moved) {
+		double[] old = values;
+		values = new double[capacity];
+		for (int j = 0; j < moved.length; j++) {
+			if (moved[j] >= 0) {
+				values[moved[j]] = old[j];
+			}
+		}
+	}
+
+	@Override
+	void clearValues() {
+		// values are ignored in empty slots
+	}
+}
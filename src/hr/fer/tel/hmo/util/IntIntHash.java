@@ -0,0 +1,148 @@
+package hr.fer.tel.hmo.util;
+
+import java.util.Arrays;
+
+/**
+ * Base for matrices keyed by a pair of ints.
+ * Keys are packed into a long and stored in an open addressing table with linear probing,
+ * so nothing is boxed or allocated on get/put.
+ */
+abstract class IntIntHash {
+
+	static final long EMPTY = Long.MIN_VALUE;
+
+	long[] keys;
+
+	int size;
+
+	IntIntHash(int expected) {
+		keys = new long[capacityFor(expected)];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * @return number of stored values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param k1 key 1
+	 * @param k2 key 2
+	 * @return true if there is a value stored under [k1][k2]
+	 */
+	public boolean contains(int k1, int k2) {
+		return find(k1, k2) >= 0;
+	}
+
+	/**
+	 * Remove all values
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		clearValues();
+		size = 0;
+	}
+
+	/**
+	 * @return slot where key is stored or -1 if none
+	 */
+	final int find(int k1, int k2) {
+		long key = key(k1, k2);
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return i;
+			}
+			if (k == EMPTY) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * @return slot where key is stored, new slot is claimed if key wasn't present
+	 */
+	final int claim(int k1, int k2) {
+		if (2 * (size + 1) > keys.length) {
+			rehash(keys.length * 2);
+		}
+		long key = key(k1, k2);
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return i;
+			}
+			if (k == EMPTY) {
+				keys[i] = key;
+				size++;
+				return i;
+			}
+		}
+	}
+
+	/**
+	 * Move all keys into a table with new capacity
+	 *
+	 * @param capacity new capacity, power of two
+	 */
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		int[] moved = new int[oldKeys.length];
+
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			long key = oldKeys[j];
+			if (key == EMPTY) {
+				moved[j] = -1;
+				continue;
+			}
+			int i = hash(key) & mask;
+			while (keys[i] != EMPTY) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = key;
+			moved[j] = i;
+		}
+		moveValues(capacity, moved);
+	}
+
+	/**
+	 * Values have to follow keys when table is resized
+	 *
+	 * @param capacity new capacity
+	 * @param moved    moved[old slot] = new slot or -1 if old slot was empty
+	 */
+	abstract void moveValues(int capacity, int[] moved);
+
+	/**
+	 * Values are cleared together with keys
+	 */
+	abstract void clearValues();
+
+	static int k1(long key) {
+		return (int) (key >> 32);
+	}
+
+	static int k2(long key) {
+		return (int) key;
+	}
+
+	static int capacityFor(int expected) {
+		return Integer.highestOneBit(Math.max(4, expected * 2) - 1) << 1;
+	}
+
+	private static long key(int k1, int k2) {
+		return ((long) k1 << 32) | (k2 & 0xffffffffL);
+	}
+
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+}
@@ -0,0 +1,64 @@
+package hr.fer.tel.hmo.util;
+
+/**
+ * Matrix of ints keyed by a pair of ints, nothing is boxed.
+ */
+public class IntIntIntMatrix extends IntIntHash {
+
+	private int[] values;
+
+	/**
+	 * @param expected expected number of values
+	 */
+	public IntIntIntMatrix(int expected) {
+		super(expected);
+		values = new int[keys.length];
+	}
+
+	/**
+	 * Get value stored at matrix[k1][k2]
+	 *
+	 * @param k1           key 1
+	 * @param k2           key 2
+	 * @param defaultValue returned if there is no value
+	 * @return value or defaultValue if none
+	 */
+	public int get(int k1, int k2, int defaultValue) {
+		int i = find(k1, k2);
+		return i < 0 ? defaultValue : values[i];
+	}
+
+	/**
+	 * Put value under matrix[k1][k2] if there is no value already
+	 *
+	 * @param k1 key 1
+	 * @param k2 key 2
+	 * @param v  value
+	 * @return true if value was stored
+	 */
+	public boolean putIfAbsent(int k1, int k2, int v) {
+		int before = size;
+		int i = claim(k1, k2);
+		if (size == before) {
+			return false;
+		}
+		values[i] = v;
+		return true;
+	}
+
+	@Override
+	void moveValues(int capacity, int[] moved) {
+		int[] old = values;
+		values = new int[capacity];
+		for (int j = 0; j < moved.length; j++) {
+			if (moved[j] >= 0) {
+				values[moved[j]] = old[j];
+			}
+		}
+	}
+
+	@Override
+	void clearValues() {
+		// values are always written when a slot is claimed
+	}
+}
@@ -0,0 +1,135 @@
+package hr.fer.tel.hmo.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Matrix of objects keyed by a pair of ints, keys are not boxed.
+ */
+public class IntIntObjMatrix<V> extends IntIntHash {
+
+	private Object[] values;
+
+	public IntIntObjMatrix() {
+		this(16);
+	}
+
+	/**
+	 * @param expected expected number of values
+	 */
+	public IntIntObjMatrix(int expected) {
+		super(expected);
+		values = new Object[keys.length];
+	}
+
+	/**
+	 * Put value into matrix under matrix[k1][k2]
+	 *
+	 * @param k1 key 1
+	 * @param k2 key 2
+	 * @param v  value, not null
+	 * @return previous value or null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int k1, int k2, V v) {
+		int i = claim(k1, k2);
+		V prev = (V) values[i];
+		values[i] = Objects.requireNonNull(v);
+		return prev;
+	}
+
+	/**
+	 * Get value stored at matrix[k1][k2]
+	 *
+	 * @param k1 key 1
+	 * @param k2 key 2
+	 * @return value or null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int k1, int k2) {
+		int i = find(k1, k2);
+		return i < 0 ? null : (V) values[i];
+	}
+
+	/**
+	 * Values can be iterated without allocation by going through all slots:
+	 * {@code for (int i = 0; i < m.slots(); i++) if (m.valueAt(i) != null) ...}
+	 *
+	 * @return number of slots
+	 */
+	public int slots() {
+		return values.length;
+	}
+
+	/**
+	 * @param slot slot in [0, slots()>
+	 * @return value stored in slot or null if slot is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public V valueAt(int slot) {
+		return (V) values[slot];
+	}
+
+	/**
+	 * @param consumer called for every stored value
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachValue(Consumer<? super V> consumer) {
+		for (Object v : values) {
+			if (v != null) {
+				consumer.accept((V) v);
+			}
+		}
+	}
+
+	@Override
+	void moveValues(int capacity, int[] moved) {
+		Object[] old = values;
+		values = new Object[capacity];
+		for (int j = 0; j < moved.length; j++) {
+			if (moved[j] >= 0) {
+				values[moved[j]] = old[j];
+			}
+		}
+	}
+
+	@Override
+	void clearValues() {
+		Arrays.fill(values, null);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof IntIntObjMatrix)) {
+			return false;
+		}
+
+		IntIntObjMatrix<?> other = (IntIntObjMatrix<?>) o;
+		if (size != other.size) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			long key = keys[i];
+			if (key != EMPTY && !values[i].equals(other.get(k1(key), k2(key)))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for (int i = 0; i < keys.length; i++) {
+			long key = keys[i];
+			if (key != EMPTY) {
+				result += Long.hashCode(key) ^ values[i].hashCode();
+			}
+		}
+		return result;
+	}
+}
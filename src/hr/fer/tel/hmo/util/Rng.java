@@ -0,0 +1,75 @@
+package hr.fer.tel.hmo.util;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random number streams.
+ * <p>
+ * Every thread draws from its own {@link SplittableRandom}, so threads never share a generator.
+ * Streams for solver runs are derived from one master seed and the run id, so a run gives
+ * the same result no matter which thread takes it. Master seed can be set with -Dhmo.seed=N,
+ * otherwise it is random and can be read with {@link #getSeed()} to repeat the run.
+ */
+public class Rng {
+
+	private static final long SEED = Long.getLong("hmo.seed", ThreadLocalRandom.current().nextLong());
+
+	/**
+	 * Stream of calling thread
+	 */
+	private static final ThreadLocal<SplittableRandom> CURRENT = new ThreadLocal<>();
+
+	private Rng() {
+		// can't be created
+	}
+
+	/**
+	 * @return master seed
+	 */
+	public static long getSeed() {
+		return SEED;
+	}
+
+	/**
+	 * @return stream of calling thread, a new unseeded stream if thread doesn't have one
+	 */
+	public static SplittableRandom current() {
+		SplittableRandom random = CURRENT.get();
+		if (random == null) {
+			random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+			CURRENT.set(random);
+		}
+		return random;
+	}
+
+	/**
+	 * @param id run id
+	 * @return stream for run with given id, same for same master seed
+	 */
+	public static SplittableRandom stream(long id) {
+		// different seeds for close ids, SplittableRandom mixes the seed again
+		return new SplittableRandom(SEED ^ (id * 0x9E3779B97F4A7C15L));
+	}
+
+	/**
+	 * Use given stream in calling thread
+	 *
+	 * @param random stream
+	 * @return stream thread used before, can be null
+	 */
+	public static SplittableRandom bind(SplittableRandom random) {
+		SplittableRandom prev = CURRENT.get();
+		CURRENT.set(random);
+		return prev;
+	}
+
+	/**
+	 * Make random numbers of calling thread reproducible, used by benchmarks
+	 *
+	 * @param seed seed
+	 */
+	public static void seed(long seed) {
+		CURRENT.set(new SplittableRandom(seed));
+	}
+}
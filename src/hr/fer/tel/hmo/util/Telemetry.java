@@ -0,0 +1,247 @@
+package hr.fer.tel.hmo.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, phase timers and best fitness trace of a search.
+ * <p>
+ * Enabled with -Dhmo.telemetry=FILE (.json or .csv). When disabled every call is
+ * a check of a constant, so instrumented code is as fast as before.
+ * Counters are {@link LongAdder}s, so workers don't fight over one memory location.
+ */
+public class Telemetry {
+
+	/**
+	 * File telemetry is written to, null if it is disabled
+	 */
+	public static final String FILE = System.getProperty("hmo.telemetry");
+
+	public static final boolean ENABLED = FILE != null;
+
+	/**
+	 * Time everything is measured from
+	 */
+	private static final long START = System.nanoTime();
+
+	/**
+	 * Best fitness over time
+	 */
+	private static final Queue<double[]> TRACE = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Things that are counted
+	 */
+	public enum Counter {
+		/**
+		 * Tabu search iterations
+		 */
+		ITERATIONS,
+		/**
+		 * Neighbors that were generated
+		 */
+		NEIGHBORS,
+		/**
+		 * Neighbors whose placement didn't fit on servers or couldn't meet latency
+		 */
+		INVALID_PLACEMENTS,
+		/**
+		 * Placements for which router didn't find routes
+		 */
+		ROUTING_FAILURES,
+		/**
+		 * Invalid neighbors kept with penalties
+		 */
+		PENALIZED,
+		/**
+		 * Neighbors rejected by tabu list
+		 */
+		TABU_REJECTED,
+		/**
+		 * Elite solutions that islands added to their neighborhoods
+		 */
+		MIGRATIONS,
+		/**
+		 * Solutions checked with assertSolution
+		 */
+		ASSERTS,
+		/**
+		 * Solutions that assertSolution rejected
+		 */
+		ASSERT_REJECTED;
+
+		private final LongAdder value = new LongAdder();
+
+		public long get() {
+			return value.sum();
+		}
+	}
+
+	/**
+	 * Timed parts of a search, a phase includes time of phases called inside it
+	 */
+	public enum Phase {
+		/**
+		 * Whole tabu search
+		 */
+		SEARCH,
+		/**
+		 * Creating initial placement and routes
+		 */
+		INITIAL,
+		/**
+		 * Creating neighborhood, includes routing and evaluation of neighbors
+		 */
+		NEIGHBORHOOD,
+		/**
+		 * Finding routes
+		 */
+		ROUTING,
+		/**
+		 * Pricing solutions
+		 */
+		EVALUATION,
+		/**
+		 * Checking solutions with assertSolution
+		 */
+		ASSERT;
+
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder calls = new LongAdder();
+
+		public long getNanos() {
+			return nanos.sum();
+		}
+
+		public long getCalls() {
+			return calls.sum();
+		}
+	}
+
+	private Telemetry() {
+		// can't be created
+	}
+
+	/**
+	 * @param counter counter to increase by one
+	 */
+	public static void count(Counter counter) {
+		if (ENABLED) {
+			counter.value.increment();
+		}
+	}
+
+	/**
+	 * @return start time for {@link #stop(Phase, long)}
+	 */
+	public static long start() {
+		return ENABLED ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * @param phase phase that ended
+	 * @param start value returned from {@link #start()}
+	 */
+	public static void stop(Phase phase, long start) {
+		if (ENABLED) {
+			phase.nanos.add(System.nanoTime() - start);
+			phase.calls.increment();
+		}
+	}
+
+	/**
+	 * Record new best fitness
+	 *
+	 * @param fitness fitness
+	 */
+	public static void best(double fitness) {
+		if (ENABLED) {
+			TRACE.add(new double[]{(System.nanoTime() - START) / 1e9, fitness});
+		}
+	}
+
+	/**
+	 * @return seconds since start
+	 */
+	private static double elapsed() {
+		return (System.nanoTime() - START) / 1e9;
+	}
+
+	/**
+	 * @return neighbors per second since start
+	 */
+	public static double neighborsPerSecond() {
+		return Counter.NEIGHBORS.get() / Math.max(elapsed(), 1e-9);
+	}
+
+	/**
+	 * @return everything as csv: kind,name,calls,nanos,value
+	 */
+	public static String csv() {
+		StringBuilder sb = new StringBuilder("kind,name,calls,nanos,value\n");
+		sb.append(String.format(Locale.ROOT, "time,elapsed_seconds,,,%.3f%n", elapsed()));
+		for (Counter c : Counter.values()) {
+			sb.append("counter,").append(name(c)).append(",,,").append(c.get()).append('\n');
+		}
+		sb.append(String.format(Locale.ROOT, "rate,neighbors_per_second,,,%.1f%n", neighborsPerSecond()));
+		for (Phase p : Phase.values()) {
+			sb.append("phase,").append(name(p)).append(',').append(p.getCalls()).append(',')
+					.append(p.getNanos()).append(",\n");
+		}
+		for (double[] t : TRACE) {
+			sb.append(String.format(Locale.ROOT, "best,%.3f,,,%.4f%n", t[0], t[1]));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return everything as json object
+	 */
+	public static String json() {
+		StringJoiner counters = new StringJoiner(", ", "{", "}");
+		for (Counter c : Counter.values()) {
+			counters.add("\"" + name(c) + "\": " + c.get());
+		}
+		StringJoiner phases = new StringJoiner(", ", "{", "}");
+		for (Phase p : Phase.values()) {
+			phases.add("\"" + name(p) + "\": {\"calls\": " + p.getCalls() + ", \"nanos\": " + p.getNanos() + "}");
+		}
+		StringJoiner trace = new StringJoiner(", ", "[", "]");
+		for (double[] t : TRACE) {
+			trace.add(String.format(Locale.ROOT, "[%.3f, %.4f]", t[0], t[1]));
+		}
+		return String.format(Locale.ROOT,
+				"{\n  \"elapsed_seconds\": %.3f,\n  \"neighbors_per_second\": %.1f,\n"
+						+ "  \"counters\": %s,\n  \"phases\": %s,\n  \"best\": %s\n}\n",
+				elapsed(), neighborsPerSecond(), counters, phases, trace
+		);
+	}
+
+	/**
+	 * Write telemetry to {@link #FILE}, as csv if it ends with .csv and as json otherwise
+	 *
+	 * @throws IOException on write exception
+	 */
+	public static void write() throws IOException {
+		if (!ENABLED) {
+			return;
+		}
+		Path file = Path.of(FILE);
+		Path tmp = Path.of(FILE + ".tmp");
+		String content = FILE.endsWith(".csv") ? csv() : json();
+		Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static String name(Enum<?> e) {
+		return e.name().toLowerCase(Locale.ROOT);
+	}
+}
@@ -4,8 +4,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.function.Function;
 
 /**
  * Class that provides utility methods for all other classes
@@ -13,49 +11,11 @@ import java.util.function.Function;
 public class Util {
 
 	public static final double EPS = 1e-6;
-	public static final Random RANDOM = ThreadLocalRandom.current();
 
 	private Util() {
 		// can't be created
 	}
 
-	/**
-	 * Perform roulette selection on given collection
-	 * it should hold that sum(probability(t) for t in ts) = 1
-	 *
-	 * @param ts          collection
-	 * @param probability knows what is probability of choosing each element
-	 * @param extractor   knows how to extract value from each element
-	 * @return chosen unit
-	 */
-	public static <T, R> R roulette(
-			Collection<T> ts,
-			Function<T, Double> probability,
-			Function<T, R> extractor
-	) {
-		if (ts.isEmpty()) {
-			return null;
-		}
-
-		double p = Util.randomDouble();
-		double P = 0.0;
-
-		for (T t : ts) {
-
-			double p_ = probability.apply(t);
-			if (p_ < 0.0 || p_ > 1.0 || Double.isNaN(P) || Double.isInfinite(P)) {
-				throw new RuntimeException("Probability for " + t + " not in [0,1] range");
-			}
-			P += p_;
-
-			if (p <= P) {
-				return extractor.apply(t);
-			}
-		}
-
-		throw new RuntimeException("Can't happen");
-	}
-
 	/**
 	 * Create c random indexes from [0,n> interval
 	 *
@@ -83,17 +43,17 @@ public class Util {
 	 * @param m      expected number of columns
 	 * @return true if matrix is n x m
 	 */
-	public static boolean checkMatrix(List<List<Double>> matrix, int n, int m) {
+	public static boolean checkMatrix(double[][] matrix, int n, int m) {
 		if (matrix == null) {
 			return false;
 		}
 
-		if (n >= 0 && matrix.size() != n) {
+		if (n >= 0 && matrix.length != n) {
 			return false;
 		}
 
-		for (List<Double> row : matrix) {
-			if (row.size() != m) {
+		for (double[] row : matrix) {
+			if (row.length != m) {
 				return false;
 			}
 		}
@@ -108,8 +68,8 @@ public class Util {
 	 * @param n     expected size
 	 * @return true if it is of expected size
 	 */
-	public static boolean checkArray(List<Double> array, int n) {
-		return array != null && array.size() == n;
+	public static boolean checkArray(double[] array, int n) {
+		return array != null && array.length == n;
 	}
 
 	/**
@@ -119,14 +79,14 @@ public class Util {
 	 * @return randomize integer
 	 */
 	public static int randomInt(int bound) {
-		return RANDOM.nextInt(bound);
+		return Rng.current().nextInt(bound);
 	}
 
 	/**
 	 * @return randomize double with uniform distribution on [0,1]
 	 */
 	public static double randomDouble() {
-		return RANDOM.nextDouble();
+		return Rng.current().nextDouble();
 	}
 
 	public static <T> void shuffle(T[] arr) {
@@ -139,6 +99,17 @@ public class Util {
 		}
 	}
 
+	/**
+	 * Shuffle list in place
+	 *
+	 * @param list list
+	 */
+	public static <T> void shuffle(List<T> list) {
+		for (int i = list.size() - 1; i > 0; --i) {
+			Collections.swap(list, i, randomInt(i + 1));
+		}
+	}
+
 	/**
 	 * Swap values in array
 	 *
@@ -160,9 +131,9 @@ public class Util {
 	 * @param j   position
 	 */
 	public static void swap(int[] arr, int i, int j) {
-		arr[i] ^= arr[j];
-		arr[j] ^= arr[i];
-		arr[i] ^= arr[j];
+		int t = arr[i];
+		arr[i] = arr[j];
+		arr[j] = t;
 	}
 
 	/**
@@ -1,7 +1,5 @@
 package hr.fer.tel.hmo.vnf;
 
-import java.util.List;
-
 /**
  * Represents one component that needs to be placed on a server.
  */
@@ -9,7 +7,7 @@ public class Component {
 
 	private final int index;
 
-	private final List<Double> resources;
+	private final double[] resources;
 
 	/**
 	 * Create a new component that needs resources
@@ -17,17 +15,25 @@ public class Component {
 	 * @param index     component's index
 	 * @param resources resources needed
 	 */
-	public Component(int index, List<Double> resources) {
+	public Component(int index, double[] resources) {
 		this.index = index;
-		this.resources = resources;
+		this.resources = resources.clone();
 	}
 
 	public int getIndex() {
 		return index;
 	}
 
-	public List<Double> getResources() {
-		return resources;
+	public int getNumberOfResources() {
+		return resources.length;
+	}
+
+	/**
+	 * @param r resource's index
+	 * @return needed amount of resource
+	 */
+	public double getResource(int r) {
+		return resources[r];
 	}
 
 	@Override